@@ -24,6 +24,8 @@ import org.littletonrobotics.junction.wpilog.WPILOGReader;
 import org.littletonrobotics.junction.wpilog.WPILOGWriter;
 import org.littletonrobotics.urcl.URCL;
 
+import frc.robot.common.util.CanBusManager;
+import frc.robot.common.util.DeviceConfigService;
 import frc.robot.games.reefscape2025.*;
 import frc.robot.GlobalConstants.runMode;
 
@@ -89,6 +91,7 @@ public class Robot extends LoggedRobot {
         Logger.start();
 
         robotContainer = new RobotContainer();
+        DeviceConfigService.getInstance().awaitAll();
         //robotContainer.calibrateGyroWithVisionDirect();
     }
 
@@ -104,6 +107,7 @@ public class Robot extends LoggedRobot {
         // This must be called from the robot's periodic block in order for anything in
         // the Command-based framework to work.
         CommandScheduler.getInstance().run();
+        CanBusManager.getInstance().periodic();
 
         // Return to normal thread priority
         Threads.setCurrentThreadPriority(false, 10);
@@ -96,11 +96,9 @@ public class DriveCommands {
                                 omega * drive.getMaxAngularSpeedRadPerSec());
                         boolean isFlipped = DriverStation.getAlliance().isPresent()
                                 && DriverStation.getAlliance().get() == Alliance.Red;
+                        Rotation2d rotation = drive.getState().pose().getRotation();
                         speeds = ChassisSpeeds.fromFieldRelativeSpeeds(
-                                speeds,
-                                isFlipped
-                                        ? drive.getRotation().plus(new Rotation2d(Math.PI))
-                                        : drive.getRotation());
+                                speeds, isFlipped ? rotation.plus(new Rotation2d(Math.PI)) : rotation);
                                 //System.out.println("isFlipped is " + isFlipped);
                         drive.runVelocity(speeds);
                     } else {
@@ -133,8 +131,9 @@ public class DriveCommands {
                                     getLinearVelocityFromJoysticks(xSupplier.getAsDouble(), ySupplier.getAsDouble());
 
                             // Calculate angular speed
+                            Rotation2d rotation = drive.getState().pose().getRotation();
                             double omega = angleController.calculate(
-                                    drive.getRotation().getRadians(),
+                                    rotation.getRadians(),
                                     rotationSupplier.get().getRadians());
 
                             // Convert to field relative speeds & send command
@@ -145,10 +144,7 @@ public class DriveCommands {
                             boolean isFlipped = DriverStation.getAlliance().isPresent()
                                     && DriverStation.getAlliance().get() == Alliance.Red;
                             speeds = ChassisSpeeds.fromFieldRelativeSpeeds(
-                                    speeds,
-                                    isFlipped
-                                            ? drive.getRotation().plus(new Rotation2d(Math.PI))
-                                            : drive.getRotation());
+                                    speeds, isFlipped ? rotation.plus(new Rotation2d(Math.PI)) : rotation);
                                 System.out.println("isFlipped is " + isFlipped);
                             drive.runVelocity(speeds);
                         },
@@ -0,0 +1,88 @@
+package frc.robot.common.subsystems.drive;
+
+/**
+ * Detects impacts and tipping from the gyro's acceleration and tilt.
+ *
+ * <p>An impact is a horizontal acceleration above the threshold, and tipping is pitch or roll beyond the tilt threshold.
+ * Either one starts a recovery window, extended while the condition lasts, during which odometry should be trusted
+ * less.
+ */
+public class CollisionDetector {
+    public enum Event {
+        NONE,
+        COLLISION,
+        TILT
+    }
+
+    private final double accelThresholdGs;
+    private final double tiltThresholdRad;
+    private final double recoverySeconds;
+
+    private double recoveryEndTimestamp = Double.NEGATIVE_INFINITY;
+    private Event lastEvent = Event.NONE;
+    private boolean wasColliding = false;
+    private boolean wasTilted = false;
+    private long collisionCount = 0;
+    private long tiltCount = 0;
+
+    /**
+     * Creates a detector.
+     *
+     * @param accelThresholdGs Horizontal acceleration treated as an impact, in g.
+     * @param tiltThresholdRad Pitch or roll treated as tipping.
+     * @param recoverySeconds How long odometry stays distrusted after the last detection.
+     */
+    public CollisionDetector(double accelThresholdGs, double tiltThresholdRad, double recoverySeconds) {
+        this.accelThresholdGs = accelThresholdGs;
+        this.tiltThresholdRad = tiltThresholdRad;
+        this.recoverySeconds = recoverySeconds;
+    }
+
+    /**
+     * Checks one set of gyro readings.
+     *
+     * @return The event that started at this reading, or {@link Event#NONE}. A collision takes precedence over tilt.
+     */
+    public Event update(double timestamp, double accelXGs, double accelYGs, double pitchRad, double rollRad) {
+        boolean colliding = Math.hypot(accelXGs, accelYGs) > accelThresholdGs;
+        boolean tilted = Math.abs(pitchRad) > tiltThresholdRad || Math.abs(rollRad) > tiltThresholdRad;
+        if (colliding || tilted) {
+            recoveryEndTimestamp = timestamp + recoverySeconds;
+        }
+
+        Event event = Event.NONE;
+        if (colliding && !wasColliding) {
+            event = Event.COLLISION;
+            collisionCount++;
+        } else if (tilted && !wasTilted) {
+            event = Event.TILT;
+            tiltCount++;
+        }
+        if (event != Event.NONE) {
+            lastEvent = event;
+        }
+        wasColliding = colliding;
+        wasTilted = tilted;
+        return event;
+    }
+
+    /** Returns whether odometry should be distrusted at the given time. */
+    public boolean isRecovering(double timestamp) {
+        return timestamp < recoveryEndTimestamp;
+    }
+
+    /** Returns the most recent event. */
+    public Event getLastEvent() {
+        return lastEvent;
+    }
+
+    /** Returns the number of impacts detected. */
+    public long getCollisionCount() {
+        return collisionCount;
+    }
+
+    /** Returns the number of times tipping was detected. */
+    public long getTiltCount() {
+        return tiltCount;
+    }
+}
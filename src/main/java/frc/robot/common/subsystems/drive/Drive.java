@@ -22,11 +22,13 @@ import com.pathplanner.lib.util.PathPlannerLogging;
 import edu.wpi.first.hal.FRCNetComm.tInstances;
 import edu.wpi.first.hal.FRCNetComm.tResourceType;
 import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
@@ -38,22 +40,33 @@ import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
+import frc.robot.Robot;
 import frc.robot.common.subsystems.vision.Vision;
+import frc.robot.common.util.DeviceConfigService;
 import frc.robot.common.util.LocalADStarAK;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import frc.robot.common.util.SeqLockDoubleArray;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import org.ironmaple.simulation.SimulatedArena;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 import frc.robot.GlobalConstants.runMode;
 import frc.robot.GlobalConstants.driveConstants;
+import frc.robot.games.reefscape2025.subsystems.drive.DriveConstants.PoseEstimationMode;
 
 public class Drive extends SubsystemBase implements Vision.VisionConsumer {
     private boolean odometryResetToVision = false;
-    static final Lock odometryLock = new ReentrantLock();
     private final GyroIO gyroIO;
     private final GyroIOInputsAutoLogged gyroInputs = new GyroIOInputsAutoLogged();
     private final Module[] modules = new Module[4]; // FL, FR, BL, BR
@@ -61,20 +74,140 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
     private final Alert gyroDisconnectedAlert =
             new Alert("Disconnected gyro, using kinematics as fallback.", AlertType.kError);
 
-    private long lastLogTime = 0;
-    private static final long LOG_INTERVAL_MS = 1000; // 1 second
+    // Optional parallel IO reads. Each device is read on a pool thread and joined before its inputs are processed, so
+    // logged inputs, and therefore replay, are unchanged. Real robot only.
+    private final boolean parallelIoReads = driveConstants.parallelIoReads && runMode.currentMode == runMode.Mode.REAL;
+    private final ExecutorService ioReadExecutor = parallelIoReads
+            ? Executors.newFixedThreadPool(driveConstants.ioReadThreads, runnable -> {
+                Thread thread = new Thread(runnable, "DriveIoRead");
+                thread.setDaemon(true);
+                return thread;
+            })
+            : null;
+    private final Runnable[] ioReadTasks = new Runnable[5];
+    private final String[] ioReadTaskNames = new String[] {"Module0", "Module1", "Module2", "Module3", "Gyro"};
+    private final Future<?>[] ioReadFutures = new Future<?>[5];
+    private long ioReadFailures = 0;
+    private final Alert ioReadFailedAlert =
+            new Alert("Drive IO read failed, see Drive/IoReadFailure in the log.", AlertType.kError);
+
+    // Reused by runVelocity so the setpoint path does not allocate
+    private final SwerveSetpointKinematics setpointKinematics =
+            new SwerveSetpointKinematics(driveConstants.moduleTranslations);
+    private final ChassisSpeeds setpointSpeeds = new ChassisSpeeds();
+    private final SwerveSetpointGenerator setpointGenerator = new SwerveSetpointGenerator(
+            driveConstants.moduleTranslations,
+            driveConstants.maxSpeedMetersPerSec,
+            driveConstants.maxModuleAccelMetersPerSecSq,
+            driveConstants.maxModuleSteerRateRadPerSec);
+    private final ChassisSpeeds generatedSpeeds = new ChassisSpeeds();
+    private final SwerveModuleState[] setpointStates = new SwerveModuleState[] {
+        new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState()
+    };
+    private final SwerveModuleState[] optimizedSetpointStates = new SwerveModuleState[] {
+        new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState()
+    };
+    private final double[] xHeadingsRad = new double[4];
+
+    // Setpoints from the last applyVelocity, published for logging: unoptimized speeds and angles, optimized speeds and
+    // angles, discretized chassis speeds, and the setpoint generator fraction
+    private final SeqLockDoubleArray publishedSetpoints = new SeqLockDoubleArray(4 * 4 + 4);
+    private final double[] loggedSetpoints = new double[publishedSetpoints.length()];
+    private final ChassisSpeeds loggedSetpointSpeeds = new ChassisSpeeds();
+
+    // Optional high-rate control thread. Commands only update the immutable target, and the thread makes every
+    // actuator write, including stopping when disabled. The Logger is not thread-safe, so setpoints are logged from
+    // periodic. Real robot only, like the estimator thread.
+    private enum ControlMode { VELOCITY, STOP_WITH_X, CHARACTERIZATION }
+    private record DriveTarget(
+            ChassisSpeeds speeds, ControlMode mode, double characterizationOutput, double timestamp) {}
+    private final boolean controlOnThread =
+            driveConstants.driveControlThreadEnabled && runMode.currentMode == runMode.Mode.REAL;
+    private final AtomicReference<DriveTarget> driveTarget =
+            new AtomicReference<>(new DriveTarget(new ChassisSpeeds(), ControlMode.VELOCITY, 0.0, 0.0));
+    private final Notifier controlNotifier = new Notifier(this::runControlLoop);
+    private final ChassisSpeeds controlSpeeds = new ChassisSpeeds();
+    private final ChassisSpeeds zeroSpeeds = new ChassisSpeeds();
+    private boolean holdingHeading = false;
+    private double heldHeadingRad = 0.0;
+
+    // Reused by the odometry loop so steady-state updates do not allocate
+    private final SwerveModulePosition[] odometryModulePositions = new SwerveModulePosition[4];
+
+    private final long[] moduleInvalidSamples = new long[4];
+    private final Alert gyroDriftAlert =
+            new Alert("Gyro drift detected, heading is relying more on wheel odometry.", AlertType.kWarning);
+    private long partialOdometrySamples = 0;
 
     private SwerveDriveKinematics kinematics = new SwerveDriveKinematics(driveConstants.moduleTranslations);
-    private Rotation2d rawGyroRotation = new Rotation2d();
-    private SwerveModulePosition[] lastModulePositions = // For delta tracking
-            new SwerveModulePosition[] {
-                new SwerveModulePosition(),
-                new SwerveModulePosition(),
-                new SwerveModulePosition(),
-                new SwerveModulePosition()
-            };
-    private SwerveDrivePoseEstimator poseEstimator =
-            new SwerveDrivePoseEstimator(kinematics, rawGyroRotation, lastModulePositions, new Pose2d());
+    private SwerveModulePosition[] initialModulePositions = new SwerveModulePosition[] {
+        new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition()
+    };
+    private SwervePoseEstimator poseEstimator = new SwervePoseEstimator(
+            driveConstants.moduleTranslations,
+            new Rotation2d(),
+            initialModulePositions,
+            new Pose2d(),
+            (int) Math.ceil(SwervePoseEstimator.historySeconds * getOdometrySampleRateHz()) + 1,
+            driveConstants.odometryStdDevs,
+            new double[] {0.9, 0.9, 0.9}); // Vision passes its own std devs with each measurement
+
+    // Folds samples into the estimator with a fused heading and slip correction, from the main loop
+    private final OdometryIntegrator odometryIntegrator = makeOdometryIntegrator();
+
+    // Trust odometry less after impacts and while tipping, so vision re-anchors the pose quickly. The scale is applied
+    // by whichever thread owns the estimator.
+    private final CollisionDetector collisionDetector = new CollisionDetector(
+            driveConstants.collisionAccelThresholdGs,
+            driveConstants.tiltThresholdRad,
+            driveConstants.collisionRecoverySeconds);
+    private volatile double odometryStdDevScale = 1.0;
+    private double appliedOdometryStdDevScale = 1.0;
+
+    // State for consumers, captured once per cycle
+    private volatile DriveState state = new DriveState(
+            0.0,
+            new Pose2d(),
+            new ChassisSpeeds(),
+            new SwerveModuleState[] {
+                new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState()
+            },
+            0.0);
+
+    // In ODOMETRY_THREAD mode the odometry thread owns the estimator. Log replay cannot reproduce the thread's timing,
+    // so the main loop estimates everywhere but on the robot.
+    private record PoseSnapshot(double timestamp, Pose2d pose) {}
+    private record EstimatorRequest(Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs) {} // Reset if no std devs
+    private final boolean estimateOnOdometryThread =
+            driveConstants.poseEstimationMode == PoseEstimationMode.ODOMETRY_THREAD
+                    && runMode.currentMode == runMode.Mode.REAL;
+    private final AtomicReference<PoseSnapshot> publishedPose =
+            new AtomicReference<>(new PoseSnapshot(0.0, new Pose2d()));
+    private final ConcurrentLinkedQueue<EstimatorRequest> estimatorRequests = new ConcurrentLinkedQueue<>();
+    private final double[] threadModuleDistances = new double[4]; // Raw samples, so the thread never builds rotations
+    private final double[] threadModuleAnglesRad = new double[4];
+    private final OdometryIntegrator threadOdometryIntegrator = makeOdometryIntegrator();
+    private double threadSampleTimestamp = Double.NaN;
+
+    // WPILib estimator fed the same inputs, for comparison when benchmarking
+    private final SwerveDrivePoseEstimator benchmarkEstimator = driveConstants.poseEstimatorBenchmark
+                    && !estimateOnOdometryThread
+            ? new SwerveDrivePoseEstimator(kinematics, new Rotation2d(), initialModulePositions, new Pose2d())
+            : null;
+    private long estimatorNanos = 0;
+    private long benchmarkEstimatorNanos = 0;
+
+    // Pose history published by the odometry thread, and robot-relative velocity history, for latency compensation.
+    // The estimator keeps its own history with vision applied in MAIN_LOOP mode.
+    private final TimeInterpolatableBuffer<Pose2d> poseHistory =
+            TimeInterpolatableBuffer.createBuffer(driveConstants.poseHistorySeconds);
+    private final TimeInterpolatableBuffer<ChassisSpeeds> speedHistory = TimeInterpolatableBuffer.createBuffer(
+            (start, end, t) -> new ChassisSpeeds(
+                    MathUtil.interpolate(start.vxMetersPerSecond, end.vxMetersPerSecond, t),
+                    MathUtil.interpolate(start.vyMetersPerSecond, end.vyMetersPerSecond, t),
+                    MathUtil.interpolate(start.omegaRadiansPerSecond, end.omegaRadiansPerSecond, t)),
+            driveConstants.poseHistorySeconds);
+    private double lastHistoryTimestamp = 0.0;
 
     public Drive(GyroIO gyroIO, ModuleIO flModuleIO, ModuleIO frModuleIO, ModuleIO blModuleIO, ModuleIO brModuleIO) {
         this.gyroIO = gyroIO;
@@ -82,14 +215,28 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
         modules[1] = new Module(frModuleIO, 1);
         modules[2] = new Module(blModuleIO, 2);
         modules[3] = new Module(brModuleIO, 3);
-
+        for (int i = 0; i < 4; i++) {
+            xHeadingsRad[i] = driveConstants.moduleTranslations[i].getAngle().getRadians();
+            ioReadTasks[i] = modules[i]::updateInputs;
+        }
+        ioReadTasks[4] = () -> gyroIO.updateInputs(gyroInputs);
 
         // Usage reporting for swerve template
         HAL.report(tResourceType.kResourceType_RobotDrive, tInstances.kRobotDriveSwerve_AdvantageKit);
 
         // Start odometry thread
+        if (estimateOnOdometryThread) {
+            SparkOdometryThread.getInstance().addTickListener(this::updateEstimatorOnOdometryThread);
+        }
+        DeviceConfigService.getInstance().awaitAll(); // Devices must be configured before they are sampled
         SparkOdometryThread.getInstance().start();
 
+        // Start drive control thread
+        if (controlOnThread) {
+            controlNotifier.setName("DriveControl");
+            controlNotifier.startPeriodic(1.0 / driveConstants.driveControlFrequency);
+        }
+
         // Configure AutoBuilder for PathPlanner
         AutoBuilder.configure(
                 this::getPose,
@@ -115,18 +262,57 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
                 new SysIdRoutine.Mechanism((voltage) -> runCharacterization(voltage.in(Volts)), null, this));
     }
 
+    /** Returns the rate module odometry samples arrive at, which sizes the estimator's history. */
+    private static double getOdometrySampleRateHz() {
+        if (runMode.currentMode == runMode.Mode.SIM) {
+            // Simulation produces one sample per physics sub-tick
+            return SimulatedArena.getSimulationSubTicksIn1Period() / Robot.defaultPeriodSecs;
+        }
+        return driveConstants.odometryFrequency;
+    }
+
+    private OdometryIntegrator makeOdometryIntegrator() {
+        return new OdometryIntegrator(
+                poseEstimator,
+                driveConstants.moduleTranslations,
+                initialModulePositions,
+                new HeadingFusion(
+                        driveConstants.moduleTranslations,
+                        driveConstants.headingKinematicWeight,
+                        driveConstants.gyroBiasFilterGain,
+                        driveConstants.stationarySpeedMetersPerSec),
+                new SlipDetector(driveConstants.moduleTranslations, driveConstants.slipThresholdMetersPerSec),
+                driveConstants.slipDetectionEnabled);
+    }
+
     @Override
     public void periodic() {
-        odometryLock.lock(); // Prevents odometry updates while reading data
-        gyroIO.updateInputs(gyroInputs);
+        // Align all odometry queues to the same sample without blocking the odometry thread
+        SparkOdometryThread odometryThread = SparkOdometryThread.getInstance();
+        odometryThread.snapshot();
+        Logger.recordOutput("Odometry/Sync/ReaderRetries", odometryThread.getReaderRetries());
+        Logger.recordOutput("Odometry/Sync/SnapshotMisses", odometryThread.getSnapshotMisses());
+        Logger.recordOutput("Odometry/Sync/WriterContentions", odometryThread.getWriterContentions());
+        odometryThread.periodicTelemetry();
+
+        // Read every device, then process the inputs in a fixed order
+        long ioReadStartNanos = System.nanoTime();
+        if (parallelIoReads) {
+            readInputsInParallel();
+        } else {
+            for (Runnable task : ioReadTasks) {
+                task.run();
+            }
+        }
+        Logger.recordOutput("Drive/IoReadMs", (System.nanoTime() - ioReadStartNanos) / 1e6);
         Logger.processInputs("Drive/Gyro", gyroInputs);
         for (var module : modules) {
             module.periodic();
         }
-        odometryLock.unlock();
+        odometryThread.release();
 
-        // Stop moving when disabled
-        if (DriverStation.isDisabled()) {
+        // Stop moving when disabled. The control thread does this itself when it runs.
+        if (DriverStation.isDisabled() && !controlOnThread) {
             for (var module : modules) {
                 module.stop();
             }
@@ -139,37 +325,218 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
         }
 
         // Update odometry
-        double[] sampleTimestamps = modules[0].getOdometryTimestamps(); // All signals are sampled together
-        int sampleCount = sampleTimestamps.length;
+        double[] sampleTimestamps = modules[0].getOdometryTimestamps(); // All module signals are sampled together
+        int sampleCount = modules[0].getOdometrySampleCount();
+        odometryIntegrator.setGyroSamples(
+                gyroInputs.connected,
+                gyroInputs.odometryYawTimestamps,
+                gyroInputs.odometryYawPositions,
+                gyroInputs.yawPosition.getRadians());
         for (int i = 0; i < sampleCount; i++) {
-            // Read wheel positions and deltas from each module
-            SwerveModulePosition[] modulePositions = new SwerveModulePosition[4];
-            SwerveModulePosition[] moduleDeltas = new SwerveModulePosition[4];
+            // Read wheel positions from each module
+            int validMask = 0;
             for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
-                modulePositions[moduleIndex] = modules[moduleIndex].getOdometryPositions()[i];
-                moduleDeltas[moduleIndex] = new SwerveModulePosition(
-                        modulePositions[moduleIndex].distanceMeters - lastModulePositions[moduleIndex].distanceMeters,
-                        modulePositions[moduleIndex].angle);
-                lastModulePositions[moduleIndex] = modulePositions[moduleIndex];
+                // Faulty samples were already interpolated or held by the module
+                if (modules[moduleIndex].getOdometryValid()[i]) {
+                    validMask |= 1 << moduleIndex;
+                } else {
+                    moduleInvalidSamples[moduleIndex]++;
+                }
+                odometryModulePositions[moduleIndex] = modules[moduleIndex].getOdometryPositions()[i];
             }
 
-            // Update gyro angle
-            if (gyroInputs.connected) {
-                // Use the real gyro angle
-                rawGyroRotation = gyroInputs.odometryYawPositions[i];
-            } else {
-                // Use the angle delta from the kinematics and module deltas
-                Twist2d twist = kinematics.toTwist2d(moduleDeltas);
-                rawGyroRotation = rawGyroRotation.plus(new Rotation2d(twist.dtheta));
+            if (validMask != 0b1111) {
+                partialOdometrySamples++;
+            }
+
+            // The odometry thread owns the estimator in ODOMETRY_THREAD mode
+            if (estimateOnOdometryThread) {
+                continue;
+            }
+
+            // Apply update, with the gyro yaw at the module sample time
+            long updateStartNanos = System.nanoTime();
+            odometryIntegrator.update(sampleTimestamps[i], odometryModulePositions);
+            estimatorNanos += System.nanoTime() - updateStartNanos;
+            if (benchmarkEstimator != null) {
+                updateStartNanos = System.nanoTime();
+                benchmarkEstimator.updateWithTime(
+                        sampleTimestamps[i],
+                        Rotation2d.fromRadians(odometryIntegrator.getHeadingRad()),
+                        odometryIntegrator.getCorrectedPositions());
+                benchmarkEstimatorNanos += System.nanoTime() - updateStartNanos;
+            }
+        }
+        odometryIntegrator.finishCycle();
+
+        // Track the newest sample time, and record the thread's newest pose once per cycle
+        if (estimateOnOdometryThread) {
+            PoseSnapshot snapshot = publishedPose.get();
+            if (snapshot.timestamp() > lastHistoryTimestamp) {
+                poseHistory.addSample(snapshot.timestamp(), snapshot.pose());
+                lastHistoryTimestamp = snapshot.timestamp();
+            }
+        } else if (sampleCount > 0) {
+            lastHistoryTimestamp = sampleTimestamps[sampleCount - 1];
+            if (controlOnThread) {
+                // The control thread reads the pose through the snapshot
+                publishedPose.set(new PoseSnapshot(lastHistoryTimestamp, poseEstimator.getEstimatedPosition()));
             }
-        Rotation2d frontrotation = Rotation2d.fromDegrees(0); 
+        }
+        updateCollisionDetection();
+        Logger.recordOutput("Odometry/PartialSamples", partialOdometrySamples);
+        Logger.recordOutput("Odometry/ModuleInvalidSamples", moduleInvalidSamples);
+        if (!estimateOnOdometryThread) {
+            SlipDetector slipDetector = odometryIntegrator.getSlipDetector();
+            Logger.recordOutput("Odometry/SlipCounts", slipDetector.getSlipCounts());
+            Logger.recordOutput("Odometry/SlipMask", slipDetector.getLastSlipMask());
+        }
 
-            // Apply update
-            poseEstimator.updateWithTime(sampleTimestamps[i], rawGyroRotation, modulePositions);
+        logEstimatorBenchmark();
+
+        // Capture this cycle's state, and record measured velocity alongside the newest pose sample
+        double stateTimestamp = sampleCount > 0 ? sampleTimestamps[sampleCount - 1] : Timer.getFPGATimestamp();
+        SwerveModuleState[] moduleStates = new SwerveModuleState[4];
+        for (int i = 0; i < 4; i++) {
+            moduleStates[i] = modules[i].getState();
+        }
+        state = new DriveState(
+                stateTimestamp,
+                getPose(),
+                kinematics.toChassisSpeeds(moduleStates),
+                moduleStates,
+                gyroInputs.yawVelocityRadPerSec);
+        speedHistory.addSample(stateTimestamp, state.speeds());
+        if (DriverStation.isDisabled() && !controlOnThread) {
+            setpointGenerator.reset(state.speeds());
+        }
+
+        if (controlOnThread && DriverStation.isEnabled()) {
+            logSetpoints();
         }
 
         // Update gyro alert
         gyroDisconnectedAlert.set(!gyroInputs.connected && runMode.currentMode != runMode.Mode.SIM);
+        HeadingFusion activeHeadingFusion = (estimateOnOdometryThread ? threadOdometryIntegrator : odometryIntegrator)
+                .getHeadingFusion();
+        double gyroBiasRadPerSec = activeHeadingFusion.getGyroBiasRadPerSec();
+        Logger.recordOutput("Odometry/Heading/FusedRad", activeHeadingFusion.getHeadingRad());
+        Logger.recordOutput("Odometry/Heading/GyroBiasRadPerSec", gyroBiasRadPerSec);
+        gyroDriftAlert.set(Math.abs(gyroBiasRadPerSec) > driveConstants.gyroDriftAlertRadPerSec);
+    }
+
+    /**
+     * Reads the gyro and modules on the IO pool and waits for all of them, so the inputs are always complete. Each queue
+     * is still drained by one thread per cycle, and submitting and joining the tasks orders those drains with the
+     * snapshot and release on the main thread. A read that throws is logged and raised as an alert; that device keeps
+     * whatever inputs the read had filled in.
+     */
+    private void readInputsInParallel() {
+        for (int i = 0; i < ioReadTasks.length; i++) {
+            ioReadFutures[i] = ioReadExecutor.submit(ioReadTasks[i]);
+        }
+        boolean failed = false;
+        for (int i = 0; i < ioReadFutures.length; i++) {
+            try {
+                ioReadFutures[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                failed = true;
+                ioReadFailures++;
+                Logger.recordOutput("Drive/IoReadFailure", ioReadTaskNames[i] + ": " + e.getCause());
+            }
+        }
+        ioReadFailedAlert.set(failed);
+        Logger.recordOutput("Drive/IoReadFailures", ioReadFailures);
+    }
+
+    /** Checks the gyro for impacts and tipping, logs new events, and sets how much odometry is trusted. */
+    private void updateCollisionDetection() {
+        double timestamp = Timer.getFPGATimestamp();
+        CollisionDetector.Event event = collisionDetector.update(
+                timestamp, gyroInputs.accelXGs, gyroInputs.accelYGs, gyroInputs.pitchRad, gyroInputs.rollRad);
+        if (event != CollisionDetector.Event.NONE) {
+            Logger.recordOutput("Drive/Collision/Event", event.name());
+            Logger.recordOutput("Drive/Collision/EventPose", getPose());
+        }
+        boolean recovering = collisionDetector.isRecovering(timestamp);
+        odometryStdDevScale = recovering ? driveConstants.collisionStdDevScale : 1.0;
+        if (!estimateOnOdometryThread) {
+            applyOdometryStdDevScale();
+        }
+        Logger.recordOutput("Drive/Collision/Recovering", recovering);
+        Logger.recordOutput("Drive/Collision/CollisionCount", collisionDetector.getCollisionCount());
+        Logger.recordOutput("Drive/Collision/TiltCount", collisionDetector.getTiltCount());
+    }
+
+    /** Scales the estimator's odometry std devs if the requested scale changed. Estimator thread only. */
+    private void applyOdometryStdDevScale() {
+        double scale = odometryStdDevScale;
+        if (scale == appliedOdometryStdDevScale) {
+            return;
+        }
+        poseEstimator.setStateStdDevs(
+                driveConstants.odometryStdDevs[0] * scale,
+                driveConstants.odometryStdDevs[1] * scale,
+                driveConstants.odometryStdDevs[2] * scale);
+        appliedOdometryStdDevScale = scale;
+    }
+
+    /**
+     * Applies queued resets and vision measurements, then folds the newest odometry sample into the estimator and
+     * publishes the result. Runs on the odometry thread after every tick.
+     */
+    private void updateEstimatorOnOdometryThread() {
+        applyOdometryStdDevScale();
+        boolean updated = false;
+        EstimatorRequest request;
+        while ((request = estimatorRequests.poll()) != null) {
+            if (request.stdDevs() == null) {
+                threadOdometryIntegrator.resetPosition(threadModuleDistances, request.pose());
+            } else {
+                poseEstimator.addVisionMeasurement(request.pose(), request.timestamp(), request.stdDevs());
+            }
+            updated = true;
+        }
+
+        // Module signals may be sampled less often than the thread ticks
+        double timestamp = modules[0].getLatestOdometryTimestamp();
+        if (!Double.isNaN(timestamp) && timestamp != threadSampleTimestamp) {
+            threadSampleTimestamp = timestamp;
+            for (int i = 0; i < 4; i++) {
+                // A failed read holds the previous position
+                modules[i].getLatestOdometryPosition(threadModuleDistances, threadModuleAnglesRad, i);
+            }
+            threadOdometryIntegrator.update(
+                    timestamp, threadModuleDistances, threadModuleAnglesRad, gyroIO.getLatestOdometryYawRad());
+            updated = true;
+        }
+
+        if (updated) {
+            publishedPose.set(new PoseSnapshot(threadSampleTimestamp, poseEstimator.getEstimatedPosition()));
+        }
+    }
+
+    /** Logs time spent in each estimator this cycle and how far the WPILib estimator's pose differs from ours. */
+    private void logEstimatorBenchmark() {
+        if (benchmarkEstimator == null) {
+            estimatorNanos = 0;
+            return;
+        }
+        Pose2d pose = poseEstimator.getEstimatedPosition();
+        Pose2d benchmarkPose = benchmarkEstimator.getEstimatedPosition();
+        Logger.recordOutput("Odometry/Benchmark/EstimatorMicros", estimatorNanos / 1000.0);
+        Logger.recordOutput("Odometry/Benchmark/WpilibEstimatorMicros", benchmarkEstimatorNanos / 1000.0);
+        Logger.recordOutput(
+                "Odometry/Benchmark/TranslationErrorMeters",
+                pose.getTranslation().getDistance(benchmarkPose.getTranslation()));
+        Logger.recordOutput(
+                "Odometry/Benchmark/RotationErrorRad",
+                Math.abs(pose.getRotation().minus(benchmarkPose.getRotation()).getRadians()));
+        Logger.recordOutput("Odometry/Benchmark/WpilibRobot", benchmarkPose);
+        estimatorNanos = 0;
+        benchmarkEstimatorNanos = 0;
     }
 
     /**
@@ -178,35 +545,173 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
      * @param speeds Speeds in meters/sec
      */
     public void runVelocity(ChassisSpeeds speeds) {
-        // Calculate module setpoints
-        speeds = ChassisSpeeds.discretize(speeds, 0.02);
-        SwerveModuleState[] setpointStates = kinematics.toSwerveModuleStates(speeds);
-        SwerveDriveKinematics.desaturateWheelSpeeds(setpointStates, driveConstants.maxSpeedMetersPerSec);
+        if (controlOnThread) {
+            setDriveTarget(speeds, ControlMode.VELOCITY);
+            return;
+        }
+        applyVelocity(speeds, 0.02);
+        logSetpoints();
+    }
 
-        // Log unoptimized setpoints
-        Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
-        Logger.recordOutput("SwerveChassisSpeeds/Setpoints", speeds);
+    private void setDriveTarget(ChassisSpeeds speeds, ControlMode mode) {
+        setDriveTarget(speeds, mode, 0.0);
+    }
 
-        long currentTime = System.currentTimeMillis();
+    private void setDriveTarget(ChassisSpeeds speeds, ControlMode mode, double characterizationOutput) {
+        driveTarget.set(new DriveTarget(
+                new ChassisSpeeds(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond),
+                mode,
+                characterizationOutput,
+                Timer.getFPGATimestamp()));
+    }
+
+    /**
+     * Runs the setpoint generator and kinematics for speeds held over the given period, and sends the setpoints to the
+     * modules.
+     */
+    private void applyVelocity(ChassisSpeeds speeds, double dtSeconds) {
+        // Limit the change from the last setpoint to what the modules can follow
+        if (driveConstants.setpointGeneratorEnabled) {
+            setpointGenerator.calculate(speeds, dtSeconds, generatedSpeeds);
+            speeds = generatedSpeeds;
+        }
+
+        // Calculate module setpoints
+        setpointKinematics.calculate(
+                speeds.vxMetersPerSecond,
+                speeds.vyMetersPerSecond,
+                speeds.omegaRadiansPerSecond,
+                dtSeconds,
+                driveConstants.maxSpeedMetersPerSec);
+        setpointKinematics.getDiscretizedSpeeds(setpointSpeeds);
 
         // Send setpoints to modules
         for (int i = 0; i < 4; i++) {
-            if (currentTime - lastLogTime >= LOG_INTERVAL_MS) {
-                //System.out.println("Module " + i + " setpoint: " + setpointStates[i].angle.getRadians() + " rad");
+            modules[i].runSetpoint(
+                    setpointKinematics.getSpeedMetersPerSec(i),
+                    setpointKinematics.getAngleRad(i),
+                    setpointKinematics.getSteerRateRadPerSec(i));
+        }
+        publishSetpoints();
+    }
+
+    /** Publishes the setpoints from the last {@link #applyVelocity} for {@link #logSetpoints()}. */
+    private void publishSetpoints() {
+        publishedSetpoints.beginWrite();
+        for (int i = 0; i < 4; i++) {
+            publishedSetpoints.set(i, setpointKinematics.getSpeedMetersPerSec(i));
+            publishedSetpoints.set(4 + i, setpointKinematics.getAngleRad(i));
+            publishedSetpoints.set(8 + i, modules[i].getSetpointSpeedMetersPerSec());
+            publishedSetpoints.set(12 + i, modules[i].getSetpointAngleRad());
+        }
+        publishedSetpoints.set(16, setpointSpeeds.vxMetersPerSecond);
+        publishedSetpoints.set(17, setpointSpeeds.vyMetersPerSecond);
+        publishedSetpoints.set(18, setpointSpeeds.omegaRadiansPerSecond);
+        publishedSetpoints.set(19, setpointGenerator.getLastFraction());
+        publishedSetpoints.endWrite();
+    }
+
+    /** Logs the unoptimized and optimized setpoints from the last {@link #applyVelocity}. Main thread only. */
+    private void logSetpoints() {
+        if (!publishedSetpoints.read(loggedSetpoints)) {
+            return; // The control thread kept it busy; log next cycle
+        }
+        for (int i = 0; i < 4; i++) {
+            setState(setpointStates[i], loggedSetpoints[i], loggedSetpoints[4 + i]);
+            setState(optimizedSetpointStates[i], loggedSetpoints[8 + i], loggedSetpoints[12 + i]);
+        }
+        loggedSetpointSpeeds.vxMetersPerSecond = loggedSetpoints[16];
+        loggedSetpointSpeeds.vyMetersPerSecond = loggedSetpoints[17];
+        loggedSetpointSpeeds.omegaRadiansPerSecond = loggedSetpoints[18];
+        Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
+        Logger.recordOutput("SwerveChassisSpeeds/Setpoints", loggedSetpointSpeeds);
+        Logger.recordOutput("SwerveStates/SetpointsOptimized", optimizedSetpointStates);
+        if (driveConstants.setpointGeneratorEnabled) {
+            Logger.recordOutput("Drive/SetpointGenerator/Fraction", loggedSetpoints[19]);
+        }
+    }
+
+    /** Runs the setpoint path for the latest target. Runs on the drive control thread. */
+    private void runControlLoop() {
+        DriveTarget target = driveTarget.get();
+        if (DriverStation.isDisabled()) {
+            for (Module module : modules) {
+                module.stop();
+            }
+            setpointGenerator.reset(zeroSpeeds);
+            holdingHeading = false;
+            return;
+        }
+
+        // Stop if commands stop updating the target
+        double dtSeconds = 1.0 / driveConstants.driveControlFrequency;
+        if (Timer.getFPGATimestamp() - target.timestamp() > driveConstants.driveTargetTimeoutSeconds) {
+            holdingHeading = false;
+            applyVelocity(zeroSpeeds, dtSeconds);
+            return;
+        }
+        if (target.mode() == ControlMode.CHARACTERIZATION) {
+            for (Module module : modules) {
+                module.runCharacterization(target.characterizationOutput());
             }
-            lastLogTime = currentTime;
-            modules[i].runSetpoint(setpointStates[i]);
+            setpointGenerator.reset(zeroSpeeds);
+            holdingHeading = false;
+            return;
         }
+        if (target.mode() == ControlMode.STOP_WITH_X) {
+            setpointKinematics.resetHeadings(xHeadingsRad);
+            setpointGenerator.reset(zeroSpeeds);
+            holdingHeading = false;
+            applyVelocity(zeroSpeeds, dtSeconds);
+            return;
+        }
+        controlSpeeds.vxMetersPerSecond = target.speeds().vxMetersPerSecond;
+        controlSpeeds.vyMetersPerSecond = target.speeds().vyMetersPerSecond;
+        controlSpeeds.omegaRadiansPerSecond = target.speeds().omegaRadiansPerSecond;
+        applyHeadingHold(controlSpeeds);
+        applyVelocity(controlSpeeds, dtSeconds);
+    }
 
-        // Log optimized setpoints (runSetpoint mutates each state)
-        Logger.recordOutput("SwerveStates/SetpointsOptimized", setpointStates);
+    /**
+     * Holds the current heading while translating without a rotation command, using the latest pose snapshot
+     * extrapolated with the last commanded rotation rate.
+     */
+    private void applyHeadingHold(ChassisSpeeds speeds) {
+        boolean translating = Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond) > 1e-3;
+        if (driveConstants.headingHoldKp <= 0.0 || speeds.omegaRadiansPerSecond != 0.0 || !translating) {
+            holdingHeading = false;
+            return;
+        }
+        PoseSnapshot snapshot = publishedPose.get();
+        double snapshotAge = MathUtil.clamp(Timer.getFPGATimestamp() - snapshot.timestamp(), 0.0, 0.05);
+        double headingRad =
+                snapshot.pose().getRotation().getRadians() + setpointSpeeds.omegaRadiansPerSecond * snapshotAge;
+        if (!holdingHeading) {
+            heldHeadingRad = headingRad;
+            holdingHeading = true;
+        }
+        speeds.omegaRadiansPerSecond =
+                driveConstants.headingHoldKp * MathUtil.angleModulus(heldHeadingRad - headingRad);
+    }
+
+    /** Updates a pooled state for logging, only creating a new rotation when the angle changes. */
+    private static void setState(SwerveModuleState state, double speedMetersPerSec, double angleRad) {
+        state.speedMetersPerSecond = speedMetersPerSec;
+        if (state.angle.getRadians() != angleRad) {
+            state.angle = Rotation2d.fromRadians(angleRad);
+        }
     }
 
     /** Runs the drive in a straight line with the specified drive output. */
     public void runCharacterization(double output) {
+        if (controlOnThread) {
+            setDriveTarget(zeroSpeeds, ControlMode.CHARACTERIZATION, output);
+            return;
+        }
         for (int i = 0; i < 4; i++) {
             modules[i].runCharacterization(output);
         }
+        setpointGenerator.reset(getChassisSpeeds()); // Bypassed, so follow the measured speeds
     }
 
     /** Stops the drive. */
@@ -219,11 +724,12 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
      * normal orientations the next time a nonzero velocity is requested.
      */
     public void stopWithX() {
-        Rotation2d[] headings = new Rotation2d[4];
-        for (int i = 0; i < 4; i++) {
-            headings[i] = driveConstants.moduleTranslations[i].getAngle();
+        if (controlOnThread) {
+            setDriveTarget(zeroSpeeds, ControlMode.STOP_WITH_X);
+            return;
         }
-        kinematics.resetHeadings(headings);
+        setpointKinematics.resetHeadings(xHeadingsRad);
+        setpointGenerator.reset(zeroSpeeds); // Stop immediately rather than ramping down
         stop();
     }
 
@@ -240,11 +746,7 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
     /** Returns the module states (turn angles and drive velocities) for all of the modules. */
     @AutoLogOutput(key = "SwerveStates/Measured")
     private SwerveModuleState[] getModuleStates() {
-        SwerveModuleState[] states = new SwerveModuleState[4];
-        for (int i = 0; i < 4; i++) {
-            states[i] = modules[i].getState();
-        }
-        return states;
+        return state.moduleStates();
     }
 
     /** Returns the module positions (turn angles and drive positions) for all of the modules. */
@@ -259,7 +761,7 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
     /** Returns the measured chassis speeds of the robot. */
     @AutoLogOutput(key = "SwerveChassisSpeeds/Measured")
     public ChassisSpeeds getChassisSpeeds() {
-        return kinematics.toChassisSpeeds(getModuleStates());
+        return state.speeds();
     }
 
     /** Returns the position of each module in radians. */
@@ -283,17 +785,87 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
     /** Returns the current odometry pose. */
     @AutoLogOutput(key = "Odometry/Robot")
     public Pose2d getPose() {
+        if (estimateOnOdometryThread) {
+            return publishedPose.get().pose();
+        }
         return poseEstimator.getEstimatedPosition();
     }
 
-    /** Returns the current odometry rotation. */
+    /**
+     * Returns the estimated pose at a past timestamp, interpolated between odometry samples, with the vision
+     * measurements known so far applied. Empty if the timestamp is older than the history.
+     */
+    public Optional<Pose2d> getPoseAt(double timestampSeconds) {
+        if (!estimateOnOdometryThread) {
+            if (timestampSeconds < poseEstimator.getOldestSampleTimestamp()) {
+                return Optional.empty();
+            }
+            return poseEstimator.sampleAt(timestampSeconds);
+        }
+        if (poseHistory.getInternalBuffer().isEmpty()
+                || timestampSeconds < poseHistory.getInternalBuffer().firstKey()) {
+            return Optional.empty();
+        }
+        return poseHistory.getSample(timestampSeconds);
+    }
+
+    /** Returns the measured robot-relative chassis speeds at a past timestamp, interpolated between cycles. */
+    public Optional<ChassisSpeeds> getChassisSpeedsAt(double timestampSeconds) {
+        return speedHistory.getSample(timestampSeconds);
+    }
+
+    /**
+     * Returns the pose expected at a future timestamp, extrapolating from the newest odometry sample with the latest
+     * measured chassis speeds. Timestamps inside the history are interpolated instead.
+     */
+    public Pose2d predictPose(double futureTimestampSeconds) {
+        if (futureTimestampSeconds <= lastHistoryTimestamp) {
+            return getPoseAt(futureTimestampSeconds).orElse(getPose());
+        }
+        Pose2d latestPose = !estimateOnOdometryThread || poseHistory.getInternalBuffer().isEmpty()
+                ? getPose()
+                : poseHistory.getInternalBuffer().lastEntry().getValue();
+        ChassisSpeeds speeds = speedHistory.getInternalBuffer().isEmpty()
+                ? new ChassisSpeeds()
+                : speedHistory.getInternalBuffer().lastEntry().getValue();
+        double dt = futureTimestampSeconds - lastHistoryTimestamp;
+        return latestPose.exp(new Twist2d(
+                speeds.vxMetersPerSecond * dt, speeds.vyMetersPerSecond * dt, speeds.omegaRadiansPerSecond * dt));
+    }
+
+    /** Returns the odometry rotation from this cycle's state. */
     public Rotation2d getRotation() {
-        return getPose().getRotation();
+        return state.pose().getRotation();
+    }
+
+    /**
+     * Returns the drive state captured this cycle. Vision measurements added later in the cycle appear in the next
+     * state, while {@link #getPose()} reflects them immediately.
+     */
+    public DriveState getState() {
+        return state;
     }
 
     /** Resets the current odometry pose. */
     public void resetOdometry(Pose2d pose) {
-        poseEstimator.resetPosition(rawGyroRotation, getModulePositions(), pose);
+        DriveState previousState = state;
+        state = new DriveState(
+                previousState.timestamp(),
+                pose,
+                previousState.speeds(),
+                previousState.moduleStates(),
+                previousState.gyroRateRadPerSec());
+        if (estimateOnOdometryThread) {
+            estimatorRequests.add(new EstimatorRequest(pose, 0.0, null));
+            poseHistory.clear();
+            return;
+        }
+        SwerveModulePosition[] modulePositions = getModulePositions();
+        odometryIntegrator.resetPosition(modulePositions, pose);
+        if (benchmarkEstimator != null) {
+            benchmarkEstimator.resetPosition(
+                    Rotation2d.fromRadians(odometryIntegrator.getHeadingRad()), modulePositions, pose);
+        }
     }
 
     /** Adds a new timestamped vision measurement. */
@@ -305,7 +877,18 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer {
         }
     
         // Continue adding vision measurements after the initial reset
+        if (estimateOnOdometryThread) {
+            estimatorRequests.add(new EstimatorRequest(visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs));
+            return;
+        }
+        long visionStartNanos = System.nanoTime();
         poseEstimator.addVisionMeasurement(visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs);
+        estimatorNanos += System.nanoTime() - visionStartNanos;
+        if (benchmarkEstimator != null) {
+            visionStartNanos = System.nanoTime();
+            benchmarkEstimator.addVisionMeasurement(visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs);
+            benchmarkEstimatorNanos += System.nanoTime() - visionStartNanos;
+        }
     }
 
     /** Returns the maximum linear speed in meters per sec. */
@@ -0,0 +1,22 @@
+package frc.robot.common.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Drive state captured once per cycle, after odometry is updated, so every consumer in a cycle sees the same values.
+ * Treat the contents as read-only.
+ *
+ * @param timestamp Timestamp of the newest odometry sample in seconds.
+ * @param pose Estimated field-relative pose.
+ * @param speeds Measured robot-relative chassis speeds.
+ * @param moduleStates Measured module states.
+ * @param gyroRateRadPerSec Measured yaw rate, counterclockwise positive.
+ */
+public record DriveState(
+        double timestamp,
+        Pose2d pose,
+        ChassisSpeeds speeds,
+        SwerveModuleState[] moduleStates,
+        double gyroRateRadPerSec) {}
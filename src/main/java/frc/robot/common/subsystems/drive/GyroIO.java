@@ -24,10 +24,20 @@ public interface GyroIO {
         public double[] odometryYawTimestamps = new double[] {};
         public Rotation2d[] odometryYawPositions = new Rotation2d[] {};
         public double yawVelocityRadPerSec = 0.0;
+        public double pitchRad = 0.0;
+        public double rollRad = 0.0;
+        public double accelXGs = 0.0; // Robot-relative linear acceleration
+        public double accelYGs = 0.0;
+        public double accelZGs = 0.0;
     }
 
     public default void updateInputs(GyroIOInputs inputs) {}
 
+    /** Returns the newest odometry yaw in radians, or NaN if unavailable. Odometry thread only. */
+    public default double getLatestOdometryYawRad() {
+        return Double.NaN;
+    }
+
     public default void setAngleAdjustment(double offset) {
         // Default: Do nothing (for non-NavX gyros)
     }
@@ -18,18 +18,19 @@ import com.studica.frc.AHRS.NavXComType;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import frc.robot.GlobalConstants.driveConstants;
-
-import java.util.Queue;
+import frc.robot.common.util.DoubleRingBuffer;
 
 /** IO implementation for NavX. */
 public class GyroIONavX implements GyroIO {
-    private final AHRS navX = new AHRS(NavXComType.kMXP_SPI, (byte) driveConstants.odometryFrequency);
-    private final Queue<Double> yawPositionQueue;
-    private final Queue<Double> yawTimestampQueue;
+    private final AHRS navX = new AHRS(NavXComType.kMXP_SPI, (int) driveConstants.gyroOdometryFrequency);
+    private final DoubleRingBuffer yawPositionQueue;
+    private final DoubleRingBuffer yawTimestampQueue;
+    private final double[] yawPositionBuffer;
 
     public GyroIONavX() {
-        yawTimestampQueue = SparkOdometryThread.getInstance().makeTimestampQueue();
-        yawPositionQueue = SparkOdometryThread.getInstance().registerSignal(navX::getAngle);
+        yawTimestampQueue = SparkOdometryThread.getInstance().makeTimestampQueue(driveConstants.gyroOdometryFrequency);
+        yawPositionQueue = SparkOdometryThread.getInstance().registerSignal(navX::getAngle, driveConstants.gyroOdometryFrequency);
+        yawPositionBuffer = new double[yawPositionQueue.capacity()];
     }
 
     @Override
@@ -37,14 +38,25 @@ public class GyroIONavX implements GyroIO {
         inputs.connected = navX.isConnected();
         inputs.yawPosition = Rotation2d.fromDegrees(-navX.getAngle());
         inputs.yawVelocityRadPerSec = Units.degreesToRadians(-navX.getRawGyroZ());
+        inputs.pitchRad = Units.degreesToRadians(navX.getPitch());
+        inputs.rollRad = Units.degreesToRadians(navX.getRoll());
+        inputs.accelXGs = navX.getWorldLinearAccelX(); // Gravity removed
+        inputs.accelYGs = navX.getWorldLinearAccelY();
+        inputs.accelZGs = navX.getWorldLinearAccelZ();
+
+        int sampleCount = Math.min(yawTimestampQueue.size(), yawPositionQueue.size());
+        inputs.odometryYawTimestamps = new double[sampleCount];
+        yawTimestampQueue.drainTo(inputs.odometryYawTimestamps);
+        yawPositionQueue.drainTo(yawPositionBuffer, sampleCount);
+        inputs.odometryYawPositions = new Rotation2d[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            inputs.odometryYawPositions[i] = Rotation2d.fromDegrees(-yawPositionBuffer[i]);
+        }
+    }
 
-        inputs.odometryYawTimestamps =
-                yawTimestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-        inputs.odometryYawPositions = yawPositionQueue.stream()
-                .map((Double value) -> Rotation2d.fromDegrees(-value))
-                .toArray(Rotation2d[]::new);
-        yawTimestampQueue.clear();
-        yawPositionQueue.clear();
+    @Override
+    public double getLatestOdometryYawRad() {
+        return navX.isConnected() ? Units.degreesToRadians(-yawPositionQueue.getLatest()) : Double.NaN;
     }
 
     @Override
@@ -22,40 +22,89 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.LinearAcceleration;
 
-import static frc.robot.games.reefscape2025.subsystems.drive.DriveConstants.*;
+import frc.robot.common.util.CanBusManager;
+import frc.robot.common.util.DeviceConfigService;
+import frc.robot.common.util.DoubleRingBuffer;
 
-import java.util.Queue;
+import static frc.robot.games.reefscape2025.subsystems.drive.DriveConstants.*;
 
 /** IO implementation for Pigeon 2. */
 public class GyroIOPigeon2 implements GyroIO {
     private final Pigeon2 pigeon = new Pigeon2(pigeonCanId);
     private final StatusSignal<Angle> yaw = pigeon.getYaw();
-    private final Queue<Double> yawPositionQueue;
-    private final Queue<Double> yawTimestampQueue;
+    private final StatusSignal<Angle> odometryYaw = yaw.clone(); // Refreshed only by the odometry thread
+    private final DoubleRingBuffer yawPositionQueue;
+    private final DoubleRingBuffer yawTimestampQueue;
+    private final double[] yawTimestampBuffer;
+    private final double[] yawPositionBuffer;
     private final StatusSignal<AngularVelocity> yawVelocity = pigeon.getAngularVelocityZWorld();
+    private final StatusSignal<Angle> pitch = pigeon.getPitch();
+    private final StatusSignal<Angle> roll = pigeon.getRoll();
+    private final StatusSignal<LinearAcceleration> accelX = pigeon.getAccelerationX();
+    private final StatusSignal<LinearAcceleration> accelY = pigeon.getAccelerationY();
+    private final StatusSignal<LinearAcceleration> accelZ = pigeon.getAccelerationZ();
 
     public GyroIOPigeon2() {
-        pigeon.getConfigurator().apply(new Pigeon2Configuration());
-        pigeon.getConfigurator().setYaw(0.0);
-        yaw.setUpdateFrequency(odometryFrequency);
-        yawVelocity.setUpdateFrequency(50.0);
+        DeviceConfigService.getInstance().submit("Drive/Pigeon", this::configureDevice);
+        yawTimestampQueue = SparkOdometryThread.getInstance().makeTimestampQueue(gyroOdometryFrequency);
+        yawPositionQueue = SparkOdometryThread.getInstance().registerSignal(this::sampleOdometryYaw, gyroOdometryFrequency);
+        yawTimestampBuffer = new double[yawTimestampQueue.capacity()];
+        yawPositionBuffer = new double[yawPositionQueue.capacity()];
+    }
+
+    private void configureDevice() {
+        DeviceConfigService service = DeviceConfigService.getInstance();
+        service.configurePhoenix("Drive/Pigeon", () -> pigeon.getConfigurator().apply(new Pigeon2Configuration()));
+        service.configurePhoenix("Drive/PigeonYaw", () -> pigeon.getConfigurator().setYaw(0.0));
+        yaw.setUpdateFrequency(gyroOdometryFrequency);
+        BaseStatusSignal.setUpdateFrequencyForAll(50.0, yawVelocity, pitch, roll, accelX, accelY, accelZ);
         pigeon.optimizeBusUtilization();
-        yawTimestampQueue = SparkOdometryThread.getInstance().makeTimestampQueue();
-        yawPositionQueue = SparkOdometryThread.getInstance().registerSignal(yaw::getValueAsDouble);
+        CanBusManager.getInstance().registerPhoenix("Drive/Pigeon", yaw, yawVelocity, pitch, roll, accelX, accelY, accelZ);
+    }
+
+    /** Refreshes the odometry copy of the yaw signal. Odometry thread only. Returns NaN if the read failed. */
+    private double sampleOdometryYaw() {
+        odometryYaw.refresh();
+        return odometryYaw.getStatus().isOK() ? odometryYaw.getValueAsDouble() : Double.NaN;
     }
 
     @Override
     public void updateInputs(GyroIOInputs inputs) {
-        inputs.connected = BaseStatusSignal.refreshAll(yaw, yawVelocity).equals(StatusCode.OK);
+        inputs.connected = BaseStatusSignal.refreshAll(yaw, yawVelocity, pitch, roll, accelX, accelY, accelZ)
+                .equals(StatusCode.OK);
         inputs.yawPosition = Rotation2d.fromDegrees(yaw.getValueAsDouble());
         inputs.yawVelocityRadPerSec = Units.degreesToRadians(yawVelocity.getValueAsDouble());
+        inputs.pitchRad = Units.degreesToRadians(pitch.getValueAsDouble());
+        inputs.rollRad = Units.degreesToRadians(roll.getValueAsDouble());
+        inputs.accelXGs = accelX.getValueAsDouble(); // Includes gravity
+        inputs.accelYGs = accelY.getValueAsDouble();
+        inputs.accelZGs = accelZ.getValueAsDouble();
+
+        // Drop samples whose read failed, so the heading holds across them
+        int sampleCount = Math.min(yawTimestampQueue.size(), yawPositionQueue.size());
+        yawTimestampQueue.drainTo(yawTimestampBuffer, sampleCount);
+        yawPositionQueue.drainTo(yawPositionBuffer, sampleCount);
+        int validCount = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (!Double.isNaN(yawPositionBuffer[i])) {
+                validCount++;
+            }
+        }
+        inputs.odometryYawTimestamps = new double[validCount];
+        inputs.odometryYawPositions = new Rotation2d[validCount];
+        for (int i = 0, j = 0; i < sampleCount; i++) {
+            if (!Double.isNaN(yawPositionBuffer[i])) {
+                inputs.odometryYawTimestamps[j] = yawTimestampBuffer[i];
+                inputs.odometryYawPositions[j] = Rotation2d.fromDegrees(yawPositionBuffer[i]);
+                j++;
+            }
+        }
+    }
 
-        inputs.odometryYawTimestamps =
-                yawTimestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-        inputs.odometryYawPositions =
-                yawPositionQueue.stream().map(Rotation2d::fromDegrees).toArray(Rotation2d[]::new);
-        yawTimestampQueue.clear();
-        yawPositionQueue.clear();
+    @Override
+    public double getLatestOdometryYawRad() {
+        return Units.degreesToRadians(yawPositionQueue.getLatest()); // NaN if the latest read failed
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package frc.robot.common.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Heading estimate blended from gyro and kinematic yaw increments.
+ *
+ * <p>The heading only ever advances by increments, so losing or regaining the gyro never makes it jump: without a gyro
+ * sample on both ends of an interval the kinematic increment is used alone, and the gyro takes over again from its next
+ * sample. While both are available a complementary filter leans on the gyro and pulls slightly toward kinematics.
+ *
+ * <p>Gyro bias is estimated online while the wheels are stationary, as a low-pass of the gyro rate, and subtracted from
+ * every gyro increment.
+ */
+public class HeadingFusion {
+    private final double[] rotationRow; // Row of the forward kinematics pseudo-inverse giving rotation
+    private final double kinematicWeight;
+    private final double biasFilterGain;
+    private final double stationarySpeedMetersPerSec;
+    private final double[] scratchDistances; // Module deltas unpacked by the overload that takes them
+    private final double[] scratchCos;
+    private final double[] scratchSin;
+
+    private double headingRad = 0.0;
+    private double lastGyroYawRad = Double.NaN;
+    private double lastGyroDeltaRad = Double.NaN;
+    private double gyroBiasRadPerSec = 0.0;
+
+    /**
+     * Creates a heading filter.
+     *
+     * @param moduleTranslations Module locations relative to the robot center.
+     * @param kinematicWeight Weight of the kinematic increment while the gyro is available, from 0 to 1.
+     * @param biasFilterGain Low-pass gain for the bias estimate per stationary sample, from 0 to 1.
+     * @param stationarySpeedMetersPerSec Wheel speed below which the robot is treated as stationary.
+     */
+    public HeadingFusion(
+            Translation2d[] moduleTranslations,
+            double kinematicWeight,
+            double biasFilterGain,
+            double stationarySpeedMetersPerSec) {
+        SimpleMatrix inverseKinematics = new SimpleMatrix(moduleTranslations.length * 2, 3);
+        for (int i = 0; i < moduleTranslations.length; i++) {
+            inverseKinematics.setRow(i * 2, 0, 1, 0, -moduleTranslations[i].getY());
+            inverseKinematics.setRow(i * 2 + 1, 0, 0, 1, moduleTranslations[i].getX());
+        }
+        SimpleMatrix pseudoInverse = inverseKinematics.pseudoInverse();
+        rotationRow = new double[moduleTranslations.length * 2];
+        for (int col = 0; col < rotationRow.length; col++) {
+            rotationRow[col] = pseudoInverse.get(2, col);
+        }
+        this.kinematicWeight = kinematicWeight;
+        this.biasFilterGain = biasFilterGain;
+        this.stationarySpeedMetersPerSec = stationarySpeedMetersPerSec;
+        scratchDistances = new double[moduleTranslations.length];
+        scratchCos = new double[moduleTranslations.length];
+        scratchSin = new double[moduleTranslations.length];
+    }
+
+    /**
+     * Advances the heading by one odometry sample.
+     *
+     * @param gyroYawRad Gyro yaw at the sample, or NaN if the gyro is unavailable.
+     * @param moduleDeltas Module distance deltas since the previous sample, at their current angles.
+     * @param dtSeconds Time since the previous sample.
+     * @return The fused heading in radians, unwrapped.
+     */
+    public double update(double gyroYawRad, SwerveModulePosition[] moduleDeltas, double dtSeconds) {
+        for (int i = 0; i < moduleDeltas.length; i++) {
+            scratchDistances[i] = moduleDeltas[i].distanceMeters;
+            scratchCos[i] = moduleDeltas[i].angle.getCos();
+            scratchSin[i] = moduleDeltas[i].angle.getSin();
+        }
+        return update(gyroYawRad, scratchDistances, scratchCos, scratchSin, dtSeconds);
+    }
+
+    /**
+     * Advances the heading by one odometry sample, with module deltas given as distances and the cosine and sine of
+     * each module angle.
+     *
+     * @return The fused heading in radians, unwrapped.
+     */
+    public double update(
+            double gyroYawRad,
+            double[] deltaDistancesMeters,
+            double[] moduleCos,
+            double[] moduleSin,
+            double dtSeconds) {
+        // Kinematic rotation from the module deltas, and the fastest wheel speed
+        double kinematicDeltaRad = 0.0;
+        double maxDistance = 0.0;
+        for (int i = 0; i < deltaDistancesMeters.length; i++) {
+            double distance = deltaDistancesMeters[i];
+            kinematicDeltaRad += rotationRow[i * 2] * distance * moduleCos[i]
+                    + rotationRow[i * 2 + 1] * distance * moduleSin[i];
+            maxDistance = Math.max(maxDistance, Math.abs(distance));
+        }
+
+        lastGyroDeltaRad = Double.NaN;
+        double deltaRad = kinematicDeltaRad;
+        if (!Double.isNaN(gyroYawRad) && !Double.isNaN(lastGyroYawRad)) {
+            double rawGyroDeltaRad = MathUtil.angleModulus(gyroYawRad - lastGyroYawRad);
+            if (dtSeconds > 0.0) {
+                // Learn the bias while the wheels are stopped
+                if (maxDistance < stationarySpeedMetersPerSec * dtSeconds) {
+                    gyroBiasRadPerSec += biasFilterGain * (rawGyroDeltaRad / dtSeconds - gyroBiasRadPerSec);
+                }
+                rawGyroDeltaRad -= gyroBiasRadPerSec * dtSeconds;
+            }
+            lastGyroDeltaRad = rawGyroDeltaRad;
+            deltaRad = rawGyroDeltaRad + kinematicWeight * (kinematicDeltaRad - rawGyroDeltaRad);
+        }
+        lastGyroYawRad = gyroYawRad;
+        headingRad += deltaRad;
+        return headingRad;
+    }
+
+    /** Returns the bias-corrected gyro increment from the last update, or NaN if it had no gyro increment. */
+    public double getLastGyroDeltaRad() {
+        return lastGyroDeltaRad;
+    }
+
+    /** Returns the estimated gyro bias in radians per second. */
+    public double getGyroBiasRadPerSec() {
+        return gyroBiasRadPerSec;
+    }
+
+    /** Returns the fused heading in radians, unwrapped. */
+    public double getHeadingRad() {
+        return headingRad;
+    }
+}
@@ -13,11 +13,13 @@
 
 package frc.robot.common.subsystems.drive;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.Timer;
 
 import static frc.robot.games.reefscape2025.subsystems.drive.DriveConstants.*;
 
@@ -30,44 +32,191 @@ public class Module {
 
     private final Alert driveDisconnectedAlert;
     private final Alert turnDisconnectedAlert;
+    private final Alert absoluteEncoderDisconnectedAlert;
+    private final String inputsKey;
+
+    // Pooled odometry samples, grown to the largest batch seen and reused every cycle
     private SwerveModulePosition[] odometryPositions = new SwerveModulePosition[] {};
+    private boolean[] odometryValid = new boolean[] {};
+    private int odometrySampleCount = 0;
+    private boolean hasValidSample = false;
+    private double lastValidDistanceMeters = 0.0;
+    private Rotation2d lastValidAngle = new Rotation2d();
+    private double lastValidTimestamp = 0.0;
+
+    // Last optimized setpoint sent to the IO
+    private double setpointSpeedMetersPerSec = 0.0;
+    private volatile double setpointAngleRad = 0.0; // Written by the drive control thread when it is enabled
+
+    // Turn angle from the last periodic, for setpoint optimization on the drive control thread
+    private volatile double measuredTurnAngleRad = 0.0;
+
+    // Steering step response, for comparing steering modes
+    private final SteeringResponseMonitor steeringMonitor =
+            new SteeringResponseMonitor(steeringStepThresholdRad, steeringSettleToleranceRad);
+    private final String steeringSettleTimeKey;
+    private final String steeringOvershootKey;
+    private final String steeringStepsKey;
 
     public Module(ModuleIO io, int index) {
         this.io = io;
         this.index = index;
+        inputsKey = "Drive/Module" + Integer.toString(index);
+        steeringSettleTimeKey = inputsKey + "/Steering/SettleTimeSec";
+        steeringOvershootKey = inputsKey + "/Steering/OvershootRad";
+        steeringStepsKey = inputsKey + "/Steering/Steps";
         driveDisconnectedAlert =
                 new Alert("Disconnected drive motor on module " + Integer.toString(index) + ".", AlertType.kError);
         turnDisconnectedAlert =
                 new Alert("Disconnected turn motor on module " + Integer.toString(index) + ".", AlertType.kError);
+        absoluteEncoderDisconnectedAlert = new Alert(
+                "Disconnected absolute encoder on module " + Integer.toString(index) + ".", AlertType.kError);
     }
 
-    public void periodic() {
+    /** Reads the IO into the inputs. May run off the main thread, but must be joined before {@link #periodic()}. */
+    public void updateInputs() {
         io.updateInputs(inputs);
-        Logger.processInputs("Drive/Module" + Integer.toString(index), inputs);
+    }
+
+    /** Processes the inputs read by {@link #updateInputs()}. Main thread only. */
+    public void periodic() {
+        Logger.processInputs(inputsKey, inputs);
 
         // Calculate positions for odometry
         int sampleCount = inputs.odometryTimestamps.length; // All signals are sampled together
-        odometryPositions = new SwerveModulePosition[sampleCount];
+        ensureOdometryCapacity(sampleCount);
+        odometrySampleCount = sampleCount;
         for (int i = 0; i < sampleCount; i++) {
-            double positionMeters = inputs.odometryDrivePositionsRad[i] * wheelRadiusMeters;
-            Rotation2d angle = inputs.odometryTurnPositions[i];
-            odometryPositions[i] = new SwerveModulePosition(positionMeters, angle);
+            // IOs that do not report validity are always valid
+            odometryValid[i] = i >= inputs.odometryValid.length || inputs.odometryValid[i];
+            if (odometryValid[i]) {
+                odometryPositions[i].distanceMeters = inputs.odometryDrivePositionsRad[i] * wheelRadiusMeters;
+                odometryPositions[i].angle = inputs.odometryTurnPositions[i];
+            }
+        }
+        fillInvalidOdometryPositions();
+        measuredTurnAngleRad = inputs.turnPosition.getRadians();
+
+        // Measure the steering response to setpoint steps
+        if (steeringMonitor.update(Timer.getFPGATimestamp(), setpointAngleRad, inputs.turnPosition.getRadians())) {
+            Logger.recordOutput(steeringSettleTimeKey, steeringMonitor.getLastSettleTimeSeconds());
+            Logger.recordOutput(steeringOvershootKey, steeringMonitor.getLastOvershootRad());
+            Logger.recordOutput(steeringStepsKey, steeringMonitor.getCompletedSteps());
         }
 
         // Update alerts
         driveDisconnectedAlert.set(!inputs.driveConnected);
         turnDisconnectedAlert.set(!inputs.turnConnected);
+        absoluteEncoderDisconnectedAlert.set(!inputs.absoluteEncoderConnected || !inputs.turnOffsetSeeded);
+    }
+
+    /**
+     * Writes the newest odometry sample's distance and angle in radians into the arrays at the given index, without
+     * allocating. Returns false if the IO does not provide one or its last read failed, leaving the arrays unchanged.
+     * Odometry thread only.
+     */
+    public boolean getLatestOdometryPosition(double[] distancesMeters, double[] anglesRad, int index) {
+        double drivePositionRad = io.getLatestOdometryDrivePositionRad();
+        double turnPositionRad = io.getLatestOdometryTurnPositionRad();
+        if (Double.isNaN(drivePositionRad) || Double.isNaN(turnPositionRad)) {
+            return false;
+        }
+        distancesMeters[index] = drivePositionRad * wheelRadiusMeters;
+        anglesRad[index] = turnPositionRad;
+        return true;
+    }
+
+    /** Returns the timestamp of the newest odometry sample, or NaN if unavailable. Odometry thread only. */
+    public double getLatestOdometryTimestamp() {
+        return io.getLatestOdometryTimestamp();
+    }
+
+    /** Grows the pooled odometry arrays to hold at least the given number of samples. */
+    private void ensureOdometryCapacity(int sampleCount) {
+        if (sampleCount <= odometryPositions.length) {
+            return;
+        }
+        SwerveModulePosition[] positions = new SwerveModulePosition[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            positions[i] = i < odometryPositions.length ? odometryPositions[i] : new SwerveModulePosition();
+        }
+        odometryPositions = positions;
+        odometryValid = new boolean[sampleCount];
     }
 
-    /** Runs the module with the specified setpoint state. Mutates the state to optimize it. */
-    public void runSetpoint(SwerveModuleState state) {
+    /**
+     * Replaces samples with failed reads. Each is interpolated between the last valid sample and the next valid sample
+     * in this batch, or held at the last valid sample if none follows.
+     */
+    private void fillInvalidOdometryPositions() {
+        double[] timestamps = inputs.odometryTimestamps;
+        int nextValid = 0;
+        for (int i = 0; i < odometrySampleCount; i++) {
+            SwerveModulePosition position = odometryPositions[i];
+            if (odometryValid[i]) {
+                hasValidSample = true;
+                lastValidDistanceMeters = position.distanceMeters;
+                lastValidAngle = position.angle;
+                lastValidTimestamp = timestamps[i];
+                continue;
+            }
+            nextValid = Math.max(nextValid, i);
+            while (nextValid < odometrySampleCount && !odometryValid[nextValid]) {
+                nextValid++;
+            }
+            boolean hasNext = nextValid < odometrySampleCount;
+            if (!hasValidSample) {
+                position.distanceMeters = hasNext ? odometryPositions[nextValid].distanceMeters : getPositionMeters();
+                position.angle = hasNext ? odometryPositions[nextValid].angle : getAngle();
+            } else if (hasNext) {
+                SwerveModulePosition next = odometryPositions[nextValid];
+                double span = timestamps[nextValid] - lastValidTimestamp;
+                double t = span > 0.0 ? (timestamps[i] - lastValidTimestamp) / span : 1.0;
+                position.distanceMeters = lastValidDistanceMeters + (next.distanceMeters - lastValidDistanceMeters) * t;
+                position.angle = lastValidAngle.interpolate(next.angle, t);
+            } else {
+                position.distanceMeters = lastValidDistanceMeters;
+                position.angle = lastValidAngle;
+            }
+        }
+    }
+
+    /**
+     * Runs the module with the specified speed and angle setpoint. Matches {@link SwerveModuleState#optimize} and
+     * {@link SwerveModuleState#cosineScale} without allocating.
+     */
+    public void runSetpoint(double speedMetersPerSec, double angleRad) {
+        runSetpoint(speedMetersPerSec, angleRad, 0.0);
+    }
+
+    /**
+     * Runs the module with the specified speed and angle setpoint, passing the rate the angle setpoint is turning at to
+     * the IO as a steering feedforward.
+     */
+    public void runSetpoint(double speedMetersPerSec, double angleRad, double steerRateRadPerSec) {
         // Optimize velocity setpoint
-        state.optimize(getAngle());
-        state.cosineScale(inputs.turnPosition);
+        double currentAngleRad = measuredTurnAngleRad;
+        if (Math.abs(MathUtil.angleModulus(angleRad - currentAngleRad)) > Math.PI / 2.0) {
+            speedMetersPerSec = -speedMetersPerSec;
+            angleRad = MathUtil.angleModulus(angleRad + Math.PI);
+        }
+        speedMetersPerSec *= Math.cos(angleRad - currentAngleRad);
+        setpointSpeedMetersPerSec = speedMetersPerSec;
+        setpointAngleRad = angleRad;
 
         // Apply setpoints
-        io.setDriveVelocity(state.speedMetersPerSecond / wheelRadiusMeters);
-        io.setTurnPosition(state.angle);
+        io.setDriveVelocity(speedMetersPerSec / wheelRadiusMeters);
+        io.setTurnPosition(angleRad, steerRateRadPerSec); // Flipping the angle does not change its rate
+    }
+
+    /** Returns the speed of the last optimized setpoint in meters per second. */
+    public double getSetpointSpeedMetersPerSec() {
+        return setpointSpeedMetersPerSec;
+    }
+
+    /** Returns the angle of the last optimized setpoint in radians. */
+    public double getSetpointAngleRad() {
+        return setpointAngleRad;
     }
 
     /** Runs the module with the specified output while controlling to zero degrees. */
@@ -107,11 +256,24 @@ public class Module {
         return new SwerveModuleState(getVelocityMetersPerSec(), getAngle());
     }
 
-    /** Returns the module positions received this cycle. */
+    /**
+     * Returns the module positions received this cycle. The array and its elements are reused every cycle, and only the
+     * first {@link #getOdometrySampleCount()} entries are current.
+     */
     public SwerveModulePosition[] getOdometryPositions() {
         return odometryPositions;
     }
 
+    /** Returns the number of odometry samples received this cycle. */
+    public int getOdometrySampleCount() {
+        return odometrySampleCount;
+    }
+
+    /** Returns whether each sample received this cycle was read without error. */
+    public boolean[] getOdometryValid() {
+        return odometryValid;
+    }
+
     /** Returns the timestamps of the samples received this cycle. */
     public double[] getOdometryTimestamps() {
         return inputs.odometryTimestamps;
@@ -45,11 +45,20 @@ public interface ModuleIO {
         // Absolute encoder inputs (for Phoenix6 CANcoder)
         public double moduleAbsolutePositionRad = 0.0; // Absolute position in radians
         public double moduleVelocityRadPerSec = 0.0; // Absolute encoder velocity in rad/sec
+        public boolean absoluteEncoderConnected = false; // Is the absolute encoder connected
+        public double readTimeMicros = 0.0; // Time spent reading these inputs
+        public double turnDriftRad = 0.0; // Absolute minus relative turn position
+        public double turnMaxDriftRad = 0.0; // Largest drift seen before a correction
+        public double turnTotalCorrectionRad = 0.0; // Sum of applied corrections
+        public long turnReseedCount = 0; // Corrections applied
+        public long turnReseedFailures = 0; // Corrections the Spark rejected
+        public boolean turnOffsetSeeded = true; // False until the turn encoder is seeded from the absolute encoder
     
         // Odometry-related fields
         public double[] odometryTimestamps = new double[] {}; // Timestamps for odometry updates
         public double[] odometryDrivePositionsRad = new double[] {}; // Drive encoder positions over time
         public Rotation2d[] odometryTurnPositions = new Rotation2d[] {}; // Turn encoder positions over time
+        public boolean[] odometryValid = new boolean[] {}; // Whether each sample was read without error
     }    
 
     /** Updates the set of loggable inputs. */
@@ -67,6 +76,37 @@ public interface ModuleIO {
     /** Run the turn motor to the specified rotation. */
     public default void setTurnPosition(Rotation2d rotation) {}
 
+    /** Run the turn motor to the specified angle in radians, without allocating a rotation. */
+    public default void setTurnPosition(double angleRad) {
+        setTurnPosition(Rotation2d.fromRadians(angleRad));
+    }
+
+    /**
+     * Run the turn motor to the specified angle in radians, with the rate the setpoint is turning at as a feedforward.
+     * IOs without a steering feedforward ignore the rate.
+     */
+    public default void setTurnPosition(double angleRad, double feedforwardRadPerSec) {
+        setTurnPosition(angleRad);
+    }
+
+    /**
+     * Returns the timestamp of the newest odometry sample, or NaN if the IO does not sample on the odometry thread.
+     * Odometry thread only.
+     */
+    public default double getLatestOdometryTimestamp() {
+        return Double.NaN;
+    }
+
+    /** Returns the newest odometry drive position in radians, or NaN if unavailable. Odometry thread only. */
+    public default double getLatestOdometryDrivePositionRad() {
+        return Double.NaN;
+    }
+
+    /** Returns the newest odometry turn position in radians, or NaN if unavailable. Odometry thread only. */
+    public default double getLatestOdometryTurnPositionRad() {
+        return Double.NaN;
+    }
+
     /** Get the position of the current swerve module */
     default SwerveModulePosition getPosition() {
         return null;
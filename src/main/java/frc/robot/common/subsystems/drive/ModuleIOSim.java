@@ -16,15 +16,23 @@ package frc.robot.common.subsystems.drive;
 import static edu.wpi.first.units.Units.*;
 
 import java.util.Arrays;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import frc.robot.common.util.SparkUtil;
 import org.ironmaple.simulation.drivesims.SwerveModuleSimulation;
 import org.ironmaple.simulation.motorsims.SimulatedMotorController;
 
 import frc.robot.GlobalConstants.driveConstants;
-
-/** Physics sim implementation of module IO. */
+import frc.robot.games.reefscape2025.subsystems.drive.DriveConstants.SteeringMode;
+
+/**
+ * Physics sim implementation of module IO.
+ *
+ * <p>In {@link SteeringMode#MAX_MOTION} steering follows a trapezoidal profile toward the nearest equivalent angle,
+ * with the setpoint's turning rate as a voltage feedforward, like the onboard MAXMotion control on the real Spark.
+ */
 public class ModuleIOSim implements ModuleIO {
     private final SwerveModuleSimulation moduleSimulation;
     private final SimulatedMotorController.GenericMotorController driveMotor;
@@ -38,6 +46,14 @@ public class ModuleIOSim implements ModuleIO {
     private double driveAppliedVolts = 0.0;
     private double turnAppliedVolts = 0.0;
 
+    // Steering profile in unwrapped radians, MAX_MOTION only
+    private final TrapezoidProfile turnProfile = new TrapezoidProfile(new TrapezoidProfile.Constraints(
+            driveConstants.maxModuleSteerRateRadPerSec, driveConstants.turnMaxAccelRadPerSecSq));
+    private final TrapezoidProfile.State turnProfileGoal = new TrapezoidProfile.State();
+    private TrapezoidProfile.State turnProfileState = null; // Restarted from the measured angle when null
+    private double turnGoalRad = 0.0;
+    private double turnFFVolts = 0.0;
+
     public ModuleIOSim(SwerveModuleSimulation moduleSimulation) {
         this.moduleSimulation = moduleSimulation;
         this.driveMotor =
@@ -59,11 +75,22 @@ public class ModuleIOSim implements ModuleIO {
         } else {
             driveController.reset();
         }
-        if (turnClosedLoop) {
+        if (turnClosedLoop && driveConstants.steeringMode == SteeringMode.MAX_MOTION) {
+            double facingRad = moduleSimulation.getSteerAbsoluteFacing().getRadians();
+            if (turnProfileState == null) {
+                turnProfileState = new TrapezoidProfile.State(facingRad, 0.0);
+            }
+            turnProfileGoal.position =
+                    turnProfileState.position + MathUtil.angleModulus(turnGoalRad - turnProfileState.position);
+            turnProfileGoal.velocity = 0.0;
+            turnProfileState = turnProfile.calculate(0.02, turnProfileState, turnProfileGoal);
+            turnAppliedVolts = turnFFVolts + turnController.calculate(facingRad, turnProfileState.position);
+        } else if (turnClosedLoop) {
             turnAppliedVolts = turnController.calculate(
                     moduleSimulation.getSteerAbsoluteFacing().getRadians());
         } else {
             turnController.reset();
+            turnProfileState = null;
         }
 
         // Update simulation state
@@ -87,6 +114,7 @@ public class ModuleIOSim implements ModuleIO {
         inputs.turnAppliedVolts = turnAppliedVolts;
         inputs.turnCurrentAmps =
                 Math.abs(moduleSimulation.getSteerMotorStatorCurrent().in(Amps));
+        inputs.absoluteEncoderConnected = true;
 
         // Update odometry inputs
         inputs.odometryTimestamps = SparkUtil.getSimulationOdometryTimeStamps();
@@ -117,7 +145,19 @@ public class ModuleIOSim implements ModuleIO {
 
     @Override
     public void setTurnPosition(Rotation2d rotation) {
+        setTurnPosition(rotation.getRadians());
+    }
+
+    @Override
+    public void setTurnPosition(double angleRad) {
+        setTurnPosition(angleRad, 0.0);
+    }
+
+    @Override
+    public void setTurnPosition(double angleRad, double feedforwardRadPerSec) {
         turnClosedLoop = true;
-        turnController.setSetpoint(rotation.getRadians());
+        turnController.setSetpoint(angleRad);
+        turnGoalRad = angleRad;
+        turnFFVolts = driveConstants.turnKv * feedforwardRadPerSec;
     }
 }
\ No newline at end of file
@@ -13,6 +13,10 @@
 
 package frc.robot.common.subsystems.drive;
 
+import static frc.robot.common.util.SparkUtil.*;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.spark.ClosedLoopSlot;
 import com.revrobotics.spark.SparkBase;
@@ -23,18 +27,45 @@ import com.revrobotics.spark.SparkClosedLoopController;
 import com.ctre.phoenix6.hardware.CANcoder;
 import com.ctre.phoenix6.signals.SensorDirectionValue;
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.filter.Debouncer;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
 
 import frc.robot.GlobalConstants.driveConstants;
+import frc.robot.common.util.CanBusManager;
+import frc.robot.common.util.CanBusManager.SparkSignal;
+import frc.robot.common.util.DeviceConfigService;
+import frc.robot.games.reefscape2025.subsystems.drive.DriveConstants.SteeringMode;
+import frc.robot.common.util.DoubleRingBuffer;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleSupplier;
 
 /**
  * Updated Module IO implementation for Spark Flex drive motor controller, Spark Max turn motor controller,
  * and a CANCoder absolute encoder for initialization.
+ *
+ * <p>Inputs are read from the devices' most recent status frames, so reading them does not wait on the bus. The CAN
+ * cost is the frames themselves, budgeted through {@link CanBusManager}: per Spark, position at the odometry rate plus
+ * velocity, applied output, bus voltage, current and faults at 50 Hz, and the CANcoder's position and velocity at 50 Hz.
+ * The time spent reading is reported in {@code readTimeMicros} each cycle.
+ *
+ * <p>The relative turn encoder is seeded from the CANcoder at boot and re-seeded during the match to remove drift from
+ * backlash and missed counts. A correction is made only while the module is nearly still and the drift has exceeded a
+ * threshold for several cycles, and it is limited in size so the turn controller sees at most a small step. The
+ * {@code setPosition} call runs on a background thread so it never blocks the loop.
+ *
+ * <p>In {@link SteeringMode#MAX_MOTION} the turn Spark follows a trapezoidal profile onboard. MAXMotion does not wrap,
+ * so each setpoint is sent as the unwrapped position nearest the current one, with the setpoint's turning rate as a
+ * voltage feedforward.
  */
 public class ModuleIOSpark implements ModuleIO {
 
+    private final int module;
     private final Rotation2d zeroRotation;
 
     // Hardware objects
@@ -48,7 +79,42 @@ public class ModuleIOSpark implements ModuleIO {
     private final SparkClosedLoopController driveController;
     private final SparkClosedLoopController turnController;
 
+    // Queue inputs from odometry thread
+    private final DoubleRingBuffer timestampQueue;
+    private final DoubleRingBuffer drivePositionQueue;
+    private final DoubleRingBuffer turnPositionQueue;
+    private final double[] drivePositionBuffer;
+    private final double[] turnPositionBuffer;
+
+    // Inputs read once per cycle, grouped by device so one failed read marks the device disconnected
+    private final StatusSignal<Angle> absolutePosition;
+    private final StatusSignal<AngularVelocity> absoluteVelocity;
+    private final DoubleSupplier[] driveEncoderSuppliers;
+    private final DoubleSupplier[] driveOutputSuppliers;
+    private final DoubleSupplier[] turnEncoderSuppliers;
+    private final DoubleSupplier[] turnOutputSuppliers;
+    private final double[] encoderValues = new double[2];
+    private final double[] outputValues = new double[4];
+    private final Debouncer driveConnectedDebounce = new Debouncer(0.5);
+    private final Debouncer turnConnectedDebounce = new Debouncer(0.5);
+    private final Debouncer absoluteEncoderConnectedDebounce = new Debouncer(0.5);
+
+    // Turn encoder re-seeding, shared by all modules
+    private static final ExecutorService reseedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TurnReseed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int driftCycles = 0;
+    private double maxDriftRad = 0.0;
+    private volatile boolean reseedInFlight = false;
+    private volatile boolean turnOffsetSeedPending = false;
+    private volatile long reseedCount = 0;
+    private volatile long reseedFailures = 0;
+    private volatile double totalCorrectionRad = 0.0;
+
     public ModuleIOSpark(int module) {
+        this.module = module;
         zeroRotation = switch (module) {
             case 0 -> driveConstants.frontLeftZeroRotation;
             case 1 -> driveConstants.frontRightZeroRotation;
@@ -93,22 +159,70 @@ public class ModuleIOSpark implements ModuleIO {
         turnEncoder = turnSpark.getEncoder();
         driveController = driveSpark.getClosedLoopController();
         turnController = turnSpark.getClosedLoopController();
+        absolutePosition = absoluteEncoder.getAbsolutePosition();
+        absoluteVelocity = absoluteEncoder.getVelocity();
+        driveEncoderSuppliers = new DoubleSupplier[] {driveEncoder::getPosition, driveEncoder::getVelocity};
+        driveOutputSuppliers = new DoubleSupplier[] {
+            driveSpark::getAppliedOutput,
+            driveSpark::getBusVoltage,
+            driveSpark::getOutputCurrent,
+            () -> driveSpark.hasActiveFault() ? 1.0 : 0.0
+        };
+        turnEncoderSuppliers = new DoubleSupplier[] {turnEncoder::getPosition, turnEncoder::getVelocity};
+        turnOutputSuppliers = new DoubleSupplier[] {
+            turnSpark::getAppliedOutput,
+            turnSpark::getBusVoltage,
+            turnSpark::getOutputCurrent,
+            () -> turnSpark.hasActiveFault() ? 1.0 : 0.0
+        };
+
+        // Configure the devices in the background, alongside the other modules. Drive waits for this before sampling.
+        DeviceConfigService.getInstance().submit("Drive/Module" + module, this::configureDevices);
+
+        // Create odometry queues, sampled at the position status frame rate
+        timestampQueue = SparkOdometryThread.getInstance().makeTimestampQueue();
+        drivePositionQueue = SparkOdometryThread.getInstance().registerSignal(driveSpark, driveEncoder::getPosition);
+        turnPositionQueue = SparkOdometryThread.getInstance().registerSignal(turnSpark, turnEncoder::getPosition);
+        drivePositionBuffer = new double[drivePositionQueue.capacity()];
+        turnPositionBuffer = new double[turnPositionQueue.capacity()];
+    }
 
+    /** Configures the CANcoder and both Sparks, then seeds the turn encoder from the CANcoder. */
+    private void configureDevices() {
         configureCANcoder();
-        // Configure turn motor basic settings and conversion factors BEFORE setting position
-        configureTurnMotorBasic();
-        // Initialize the turn offset BEFORE configuring closed-loop control
-        initializeTurnOffset();
-        // Configure closed-loop control AFTER position is properly set
-        configureTurnMotorClosedLoop();
+        configureTurnMotor();
         configureDriveMotor();
+        initializeTurnOffset();
+
+        // Only the absolute encoder signals read each cycle are needed after initialization
+        BaseStatusSignal.setUpdateFrequencyForAll(50.0, absolutePosition, absoluteVelocity);
+        absoluteEncoder.optimizeBusUtilization();
+        CanBusManager.getInstance().registerPhoenix(
+            "Drive/Module" + module + "/AbsoluteEncoder", absolutePosition, absoluteVelocity);
+    }
+
+    /** Signals read from each module Spark, and how often. */
+    private static Map<SparkSignal, Double> getSignalRates() {
+        return Map.of(
+            SparkSignal.PRIMARY_ENCODER_POSITION, driveConstants.odometryFrequency,
+            SparkSignal.PRIMARY_ENCODER_VELOCITY, 50.0,
+            SparkSignal.APPLIED_OUTPUT, 50.0,
+            SparkSignal.BUS_VOLTAGE, 50.0,
+            SparkSignal.OUTPUT_CURRENT, 50.0,
+            SparkSignal.FAULTS, 50.0);
+    }
+
+    /** Rate at which setpoints are sent to each module Spark. */
+    private static double getControlRate() {
+        return driveConstants.driveControlThreadEnabled ? driveConstants.driveControlFrequency : 50.0;
     }
 
     private void configureCANcoder() {
         var config = new com.ctre.phoenix6.configs.CANcoderConfiguration();
         config.MagnetSensor.SensorDirection = SensorDirectionValue.Clockwise_Positive;
         config.MagnetSensor.AbsoluteSensorDiscontinuityPoint = 1;
-        absoluteEncoder.getConfigurator().apply(config);
+        DeviceConfigService.getInstance().configurePhoenix(
+            "Drive/Module" + module + "/AbsoluteEncoder", () -> absoluteEncoder.getConfigurator().apply(config));
     }
 
     private void configureDriveMotor() {
@@ -127,10 +241,16 @@ public class ModuleIOSpark implements ModuleIO {
             .feedbackSensor(com.revrobotics.spark.config.ClosedLoopConfig.FeedbackSensor.kPrimaryEncoder)
             .pidf(driveConstants.driveKp, driveConstants.driveKi, driveConstants.driveKd, 0.0);
 
-        driveSpark.configure(driveConfig, SparkBase.ResetMode.kResetSafeParameters, SparkBase.PersistMode.kPersistParameters);
+        driveConfig.signals
+            .primaryEncoderPositionAlwaysOn(true)
+            .primaryEncoderVelocityAlwaysOn(true);
+        CanBusManager.getInstance().budgetSpark(
+            "Drive/Module" + module + "/Drive", driveConfig, getSignalRates(), getControlRate());
+
+        DeviceConfigService.getInstance().configureSpark("Drive/Module" + module + "/Drive", driveSpark, driveConfig);
     }
 
-    private void configureTurnMotorBasic() {
+    private void configureTurnMotor() {
         var turnConfig = new com.revrobotics.spark.config.SparkMaxConfig();
         turnConfig
             .idleMode(com.revrobotics.spark.config.SparkBaseConfig.IdleMode.kBrake)
@@ -141,57 +261,221 @@ public class ModuleIOSpark implements ModuleIO {
         turnConfig.encoder
             .positionConversionFactor(driveConstants.turnEncoderPositionFactor) // Apply gear reduction correction
             .velocityConversionFactor(driveConstants.turnEncoderVelocityFactor); // Correct velocity scaling
-    
-        // Apply basic configuration without closed-loop control
-        turnSpark.configure(turnConfig, SparkBase.ResetMode.kResetSafeParameters, SparkBase.PersistMode.kPersistParameters);
-    }
-    
-    private void configureTurnMotorClosedLoop() {
-        var turnConfig = new com.revrobotics.spark.config.SparkMaxConfig();
-        
-        // Configure closed-loop control after position has been properly initialized
+
+        turnConfig.signals
+            .primaryEncoderPositionAlwaysOn(true)
+            .primaryEncoderVelocityAlwaysOn(true);
+        CanBusManager.getInstance().budgetSpark(
+            "Drive/Module" + module + "/Turn", turnConfig, getSignalRates(), getControlRate());
+
+        // The controller only acts once a setpoint is sent, so it can be configured before the offset is seeded
         turnConfig.closedLoop
             .feedbackSensor(com.revrobotics.spark.config.ClosedLoopConfig.FeedbackSensor.kPrimaryEncoder)
             .pidf(driveConstants.turnKp, driveConstants.turnKi, driveConstants.turnKd, 0.0)
-            .positionWrappingEnabled(true)
+            .positionWrappingEnabled(driveConstants.steeringMode == SteeringMode.POSITION)
             .positionWrappingInputRange(driveConstants.turnPIDMinInput, driveConstants.turnPIDMaxInput);
-    
-        // Apply only the closed-loop configuration
-        turnSpark.configure(turnConfig, SparkBase.ResetMode.kNoResetSafeParameters, SparkBase.PersistMode.kPersistParameters);
-    }    
+        turnConfig.closedLoop.maxMotion
+            .maxVelocity(driveConstants.maxModuleSteerRateRadPerSec) // Velocity conversion units, module rad/sec
+            .maxAcceleration(driveConstants.turnMaxAccelRadPerSecSq)
+            .allowedClosedLoopError(driveConstants.turnAllowedErrorRad);
+
+        DeviceConfigService.getInstance().configureSpark("Drive/Module" + module + "/Turn", turnSpark, turnConfig);
+    }
 
+    /**
+     * Seeds the turn encoder from the CANcoder. If no valid absolute position arrives, the seed is left to
+     * {@link #updateInputs} once the CANcoder reports one, and the module reports its absolute encoder as disconnected
+     * until then.
+     */
     private void initializeTurnOffset() {
-        double absolutePosition = absoluteEncoder.getAbsolutePosition().getValueAsDouble(); // Rotations (0.0 to 1.0)
-        double absolutePositionRad = absolutePosition * driveConstants.tau; // Convert to radians
-        double zeroOffsetRad = zeroRotation.getRadians(); // Radians
-        turnEncoder.setPosition(absolutePositionRad - zeroOffsetRad);
-        
-        // Small delay to ensure setPosition takes effect before closed-loop configuration
-        try {
-            Thread.sleep(10); // 10ms delay
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        // Wait for a frame sent after the CANcoder config was applied
+        boolean absoluteOk = DeviceConfigService.getInstance().configurePhoenix(
+            "Drive/Module" + module + "/AbsolutePosition", () -> absolutePosition.waitForUpdate(0.1).getStatus());
+        if (!absoluteOk) {
+            turnOffsetSeedPending = true;
+            return;
         }
-        
-        System.out.println("Module " + absoluteEncoder.getDeviceID() + " absolutePosition is " + absolutePosition + " rotations, offsetted position is " + turnEncoder.getPosition() + " radians");
+        double turnPositionRad = absolutePosition.getValueAsDouble() * driveConstants.tau - zeroRotation.getRadians();
+
+        // Commands to a Spark are processed in order, so no delay is needed before setpoints follow
+        if (!DeviceConfigService.getInstance().runSpark(
+                "Drive/Module" + module + "/TurnOffset", turnSpark, () -> turnEncoder.setPosition(turnPositionRad))) {
+            turnOffsetSeedPending = true;
+        }
+    }
+
+    /** Seeds the turn encoder in the background after the seed at boot failed. */
+    private void seedTurnOffsetLate(double absolutePositionRad) {
+        reseedInFlight = true;
+        reseedExecutor.execute(() -> {
+            if (tryUntilOk(turnSpark, 3, () -> turnEncoder.setPosition(absolutePositionRad))) {
+                turnOffsetSeedPending = false;
+            }
+            reseedInFlight = false;
+        });
     }
+
     private Rotation2d getTurnPosition() {
         return Rotation2d.fromRadians(turnEncoder.getPosition());
     }
 
     @Override
     public void setTurnPosition(Rotation2d desiredRotation) {
+        setTurnPosition(desiredRotation.getRadians());
+    }
+
+    @Override
+    public void setTurnPosition(double angleRad) {
+        setTurnPosition(angleRad, 0.0);
+    }
+
+    @Override
+    public void setTurnPosition(double angleRad, double feedforwardRadPerSec) {
+        if (driveConstants.steeringMode == SteeringMode.MAX_MOTION) {
+            // Nearest unwrapped equivalent of the setpoint, from the cached position frame
+            double positionRad = turnEncoder.getPosition();
+            double setpoint = positionRad + MathUtil.angleModulus(angleRad - positionRad);
+            turnController.setReference(
+                setpoint,
+                ControlType.kMAXMotionPositionControl,
+                ClosedLoopSlot.kSlot0,
+                driveConstants.turnKv * feedforwardRadPerSec,
+                com.revrobotics.spark.SparkClosedLoopController.ArbFFUnits.kVoltage
+            );
+            return;
+        }
         double setpoint = MathUtil.inputModulus(
-            desiredRotation.getRadians(), driveConstants.turnPIDMinInput, driveConstants.turnPIDMaxInput
+            angleRad, driveConstants.turnPIDMinInput, driveConstants.turnPIDMaxInput
         );
         turnController.setReference(setpoint, ControlType.kPosition);
     }
 
     @Override
     public void updateInputs(ModuleIOInputs inputs) {
-        inputs.drivePositionRad = driveEncoder.getPosition();
-        inputs.driveVelocityRadPerSec = driveEncoder.getVelocity();
-        inputs.turnPosition = getTurnPosition();
+        long readStartNanos = System.nanoTime();
+
+        // Update drive inputs. Reads are batched into reused arrays so nothing is allocated per cycle, and the results
+        // are combined locally rather than through the shared sticky fault flag, since modules may be read concurrently.
+        boolean driveEncoderOk = ifOk(driveSpark, driveEncoderSuppliers, encoderValues);
+        if (driveEncoderOk) {
+            inputs.drivePositionRad = encoderValues[0];
+            inputs.driveVelocityRadPerSec = encoderValues[1];
+        }
+        boolean driveOutputOk = ifOk(driveSpark, driveOutputSuppliers, outputValues);
+        if (driveOutputOk) {
+            inputs.driveAppliedVolts = outputValues[0] * outputValues[1];
+            inputs.driveCurrentAmps = outputValues[2];
+            inputs.driveStatorCurrent = outputValues[2];
+            inputs.driveSupplyCurrent = outputValues[2] * Math.abs(outputValues[0]); // Estimated from duty cycle
+            inputs.driveFault = outputValues[3] != 0.0;
+        }
+        inputs.driveConnected = driveConnectedDebounce.calculate(driveEncoderOk && driveOutputOk);
+
+        // Update turn inputs
+        boolean turnEncoderOk = ifOk(turnSpark, turnEncoderSuppliers, encoderValues);
+        if (turnEncoderOk) {
+            inputs.turnPosition = Rotation2d.fromRadians(encoderValues[0]);
+            inputs.turnVelocityRadPerSec = encoderValues[1];
+        }
+        boolean turnOutputOk = ifOk(turnSpark, turnOutputSuppliers, outputValues);
+        if (turnOutputOk) {
+            inputs.turnAppliedVolts = outputValues[0] * outputValues[1];
+            inputs.turnCurrentAmps = outputValues[2];
+            inputs.turnStatorCurrent = outputValues[2];
+            inputs.turnSupplyCurrent = outputValues[2] * Math.abs(outputValues[0]);
+            inputs.turnFault = outputValues[3] != 0.0;
+        }
+        inputs.turnConnected = turnConnectedDebounce.calculate(turnEncoderOk && turnOutputOk);
+
+        // Update absolute encoder inputs
+        boolean absoluteEncoderOk = BaseStatusSignal.refreshAll(absolutePosition, absoluteVelocity).isOK();
+        inputs.absoluteEncoderConnected = absoluteEncoderConnectedDebounce.calculate(absoluteEncoderOk);
+        if (absoluteEncoderOk) {
+            inputs.moduleAbsolutePositionRad =
+                    MathUtil.angleModulus(absolutePosition.getValueAsDouble() * driveConstants.tau
+                            - zeroRotation.getRadians());
+            inputs.moduleVelocityRadPerSec = absoluteVelocity.getValueAsDouble() * driveConstants.tau;
+        }
+        if (absoluteEncoderOk && turnEncoderOk) {
+            if (turnOffsetSeedPending) {
+                if (!reseedInFlight) {
+                    seedTurnOffsetLate(inputs.moduleAbsolutePositionRad);
+                }
+            } else {
+                updateTurnDrift(inputs);
+            }
+        }
+        inputs.turnOffsetSeeded = !turnOffsetSeedPending;
+        inputs.turnMaxDriftRad = maxDriftRad;
+        inputs.turnTotalCorrectionRad = totalCorrectionRad;
+        inputs.turnReseedCount = reseedCount;
+        inputs.turnReseedFailures = reseedFailures;
+
+        // Update odometry inputs
+        int sampleCount = Math.min(
+            timestampQueue.size(), Math.min(drivePositionQueue.size(), turnPositionQueue.size()));
+        inputs.odometryTimestamps = new double[sampleCount];
+        timestampQueue.drainTo(inputs.odometryTimestamps);
+        drivePositionQueue.drainTo(drivePositionBuffer, sampleCount);
+        turnPositionQueue.drainTo(turnPositionBuffer, sampleCount);
+        inputs.odometryDrivePositionsRad = new double[sampleCount];
+        inputs.odometryTurnPositions = new Rotation2d[sampleCount];
+        inputs.odometryValid = new boolean[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            // The odometry thread writes NaN for a failed read
+            inputs.odometryValid[i] = !Double.isNaN(drivePositionBuffer[i]) && !Double.isNaN(turnPositionBuffer[i]);
+            inputs.odometryDrivePositionsRad[i] = drivePositionBuffer[i];
+            inputs.odometryTurnPositions[i] = Rotation2d.fromRadians(turnPositionBuffer[i]);
+        }
+        inputs.readTimeMicros = (System.nanoTime() - readStartNanos) / 1000.0;
+    }
+
+    /** Measures turn encoder drift and queues a limited correction once it has persisted while the module is still. */
+    private void updateTurnDrift(ModuleIOInputs inputs) {
+        double relativeRad = inputs.turnPosition.getRadians();
+        double driftRad = MathUtil.angleModulus(inputs.moduleAbsolutePositionRad - relativeRad);
+        inputs.turnDriftRad = driftRad;
+
+        boolean still = Math.abs(inputs.turnVelocityRadPerSec) < driveConstants.turnReseedMaxVelocityRadPerSec;
+        if (!still || Math.abs(driftRad) <= driveConstants.turnReseedThresholdRad) {
+            driftCycles = 0;
+            return;
+        }
+        driftCycles++;
+        maxDriftRad = Math.max(maxDriftRad, Math.abs(driftRad));
+        if (!driveConstants.turnReseedEnabled || driftCycles < driveConstants.turnReseedCycles || reseedInFlight) {
+            return;
+        }
+
+        double correctionRad = MathUtil.clamp(
+            driftRad, -driveConstants.turnReseedMaxStepRad, driveConstants.turnReseedMaxStepRad);
+        double seededRad = relativeRad + correctionRad;
+        driftCycles = 0;
+        reseedInFlight = true;
+        reseedExecutor.execute(() -> {
+            if (tryUntilOk(turnSpark, 3, () -> turnEncoder.setPosition(seededRad))) {
+                reseedCount++;
+                totalCorrectionRad += Math.abs(correctionRad);
+            } else {
+                reseedFailures++;
+            }
+            reseedInFlight = false;
+        });
+    }
+
+    @Override
+    public double getLatestOdometryTimestamp() {
+        return timestampQueue.getLatest();
+    }
+
+    @Override
+    public double getLatestOdometryDrivePositionRad() {
+        return drivePositionQueue.getLatest();
+    }
+
+    @Override
+    public double getLatestOdometryTurnPositionRad() {
+        return turnPositionQueue.getLatest();
     }
 
     @Override
@@ -0,0 +1,234 @@
+package frc.robot.common.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+/**
+ * Folds odometry samples into a {@link SwervePoseEstimator} one at a time. Each module sample is joined to the gyro by
+ * timestamp, its heading is blended by {@link HeadingFusion}, slipping modules are corrected by {@link SlipDetector},
+ * and the result is passed to the estimator.
+ *
+ * <p>The per-sample path does not allocate: the heading and gyro yaw are kept in radians, gyro samples are interpolated
+ * by hand, and module positions are only read. Module angles may also be given in radians, so callers that sample raw
+ * encoder values never need to build a {@link Rotation2d}.
+ */
+public class OdometryIntegrator {
+    private final int moduleCount;
+    private final SwervePoseEstimator poseEstimator;
+    private final HeadingFusion headingFusion;
+    private final SlipDetector slipDetector;
+    private final boolean slipDetectionEnabled;
+
+    private final double[] lastDistances;
+    private final double[] distances;
+    private final double[] deltaDistances;
+    private final double[] moduleCos;
+    private final double[] moduleSin;
+    private final double[] correctedDistances;
+    private final SwerveModulePosition[] correctedPositions;
+    private double lastTimestamp = Double.NaN;
+    private double headingRad = 0.0;
+
+    // This cycle's gyro samples, joined to module samples by timestamp
+    private boolean gyroConnected = false;
+    private double[] gyroTimestamps = new double[0];
+    private Rotation2d[] gyroYaws = new Rotation2d[0];
+    private double latestGyroYawRad = Double.NaN;
+    private int gyroSampleCursor = 0;
+    private boolean hasGyroSample = false;
+    private double lastGyroSampleTimestamp = 0.0;
+    private double lastGyroSampleYawRad = 0.0;
+
+    /**
+     * Creates an integrator.
+     *
+     * @param poseEstimator The estimator to update.
+     * @param moduleTranslations Module locations relative to the robot center.
+     * @param initialPositions Module positions the estimator was created or last reset with.
+     * @param headingFusion Heading filter, owned by this integrator.
+     * @param slipDetector Slip detector, owned by this integrator.
+     * @param slipDetectionEnabled Whether slipping modules' deltas are replaced.
+     */
+    public OdometryIntegrator(
+            SwervePoseEstimator poseEstimator,
+            Translation2d[] moduleTranslations,
+            SwerveModulePosition[] initialPositions,
+            HeadingFusion headingFusion,
+            SlipDetector slipDetector,
+            boolean slipDetectionEnabled) {
+        moduleCount = moduleTranslations.length;
+        this.poseEstimator = poseEstimator;
+        this.headingFusion = headingFusion;
+        this.slipDetector = slipDetector;
+        this.slipDetectionEnabled = slipDetectionEnabled;
+        lastDistances = new double[moduleCount];
+        distances = new double[moduleCount];
+        deltaDistances = new double[moduleCount];
+        moduleCos = new double[moduleCount];
+        moduleSin = new double[moduleCount];
+        correctedDistances = new double[moduleCount];
+        correctedPositions = new SwerveModulePosition[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            lastDistances[i] = initialPositions[i].distanceMeters;
+            correctedPositions[i] = new SwerveModulePosition();
+        }
+    }
+
+    /**
+     * Sets this cycle's gyro samples, which {@link #update(double, SwerveModulePosition[])} joins to module samples by
+     * timestamp. The arrays are read, not copied.
+     *
+     * @param connected Whether the gyro is connected. Module samples get no gyro yaw while it is not.
+     * @param timestamps Gyro sample timestamps, increasing.
+     * @param yaws Gyro yaw at each sample.
+     * @param latestYawRad The latest gyro yaw, used until the first sample arrives.
+     */
+    public void setGyroSamples(boolean connected, double[] timestamps, Rotation2d[] yaws, double latestYawRad) {
+        gyroConnected = connected;
+        gyroTimestamps = timestamps;
+        gyroYaws = yaws;
+        latestGyroYawRad = latestYawRad;
+        gyroSampleCursor = 0;
+    }
+
+    /**
+     * Folds in one module sample, with the gyro yaw interpolated at its timestamp. Timestamps must increase within a
+     * cycle.
+     */
+    public void update(double timestamp, SwerveModulePosition[] positions) {
+        update(timestamp, positions, gyroConnected ? getGyroYawAt(timestamp) : Double.NaN);
+    }
+
+    /**
+     * Folds in one module sample with the gyro yaw at the same time.
+     *
+     * @param timestamp Sample timestamp in seconds.
+     * @param positions Module positions at the sample. Read, not kept.
+     * @param gyroYawRad Gyro yaw at the sample, or NaN if unavailable.
+     */
+    public void update(double timestamp, SwerveModulePosition[] positions, double gyroYawRad) {
+        for (int i = 0; i < moduleCount; i++) {
+            distances[i] = positions[i].distanceMeters;
+            moduleCos[i] = positions[i].angle.getCos();
+            moduleSin[i] = positions[i].angle.getSin();
+        }
+        integrate(timestamp, distances, gyroYawRad);
+        for (int i = 0; i < moduleCount; i++) {
+            correctedPositions[i].distanceMeters = correctedDistances[i];
+            correctedPositions[i].angle = positions[i].angle;
+        }
+    }
+
+    /**
+     * Folds in one module sample given as raw distances and angles, with the gyro yaw at the same time. Does not update
+     * {@link #getCorrectedPositions()}.
+     *
+     * @param timestamp Sample timestamp in seconds.
+     * @param distancesMeters Module distances at the sample. Read, not kept.
+     * @param anglesRad Module angles at the sample, in radians. Read, not kept.
+     * @param gyroYawRad Gyro yaw at the sample, or NaN if unavailable.
+     */
+    public void update(double timestamp, double[] distancesMeters, double[] anglesRad, double gyroYawRad) {
+        for (int i = 0; i < moduleCount; i++) {
+            moduleCos[i] = Math.cos(anglesRad[i]);
+            moduleSin[i] = Math.sin(anglesRad[i]);
+        }
+        integrate(timestamp, distancesMeters, gyroYawRad);
+    }
+
+    /** Folds in one module sample whose angles are already in {@link #moduleCos} and {@link #moduleSin}. */
+    private void integrate(double timestamp, double[] distancesMeters, double gyroYawRad) {
+        for (int i = 0; i < moduleCount; i++) {
+            deltaDistances[i] = distancesMeters[i] - lastDistances[i];
+            lastDistances[i] = distancesMeters[i];
+        }
+        double dtSeconds = timestamp - lastTimestamp;
+        lastTimestamp = timestamp;
+
+        // Blend the heading from gyro and kinematic increments
+        headingRad = headingFusion.update(gyroYawRad, deltaDistances, moduleCos, moduleSin, dtSeconds);
+
+        // Replace slipping modules' deltas with the motion implied by the other modules and the gyro
+        slipDetector.correct(
+                distancesMeters,
+                moduleCos,
+                moduleSin,
+                slipDetectionEnabled ? headingFusion.getLastGyroDeltaRad() : Double.NaN,
+                dtSeconds,
+                correctedDistances);
+        poseEstimator.updateWithTime(timestamp, headingRad, correctedDistances, moduleCos, moduleSin);
+    }
+
+    /** Carries the newest gyro sample into the next cycle. Call after the cycle's last update. */
+    public void finishCycle() {
+        getGyroYawAt(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns the gyro yaw at a module sample time, interpolating between the gyro samples on either side. Holds the
+     * newest gyro sample past the end of the stream, and uses the latest yaw if no gyro samples have arrived yet.
+     */
+    private double getGyroYawAt(double timestamp) {
+        int gyroSampleCount = Math.min(gyroTimestamps.length, gyroYaws.length);
+
+        // Advance past every gyro sample at or before the module sample
+        while (gyroSampleCursor < gyroSampleCount && gyroTimestamps[gyroSampleCursor] <= timestamp) {
+            lastGyroSampleTimestamp = gyroTimestamps[gyroSampleCursor];
+            lastGyroSampleYawRad = gyroYaws[gyroSampleCursor].getRadians();
+            hasGyroSample = true;
+            gyroSampleCursor++;
+        }
+
+        if (!hasGyroSample) {
+            return gyroSampleCursor < gyroSampleCount ? gyroYaws[gyroSampleCursor].getRadians() : latestGyroYawRad;
+        }
+        if (lastGyroSampleTimestamp == timestamp || gyroSampleCursor >= gyroSampleCount) {
+            return lastGyroSampleYawRad;
+        }
+        double nextTimestamp = gyroTimestamps[gyroSampleCursor];
+        double t = (timestamp - lastGyroSampleTimestamp) / (nextTimestamp - lastGyroSampleTimestamp);
+        double nextYawRad = gyroYaws[gyroSampleCursor].getRadians();
+        return MathUtil.angleModulus(
+                lastGyroSampleYawRad + MathUtil.angleModulus(nextYawRad - lastGyroSampleYawRad) * t);
+    }
+
+    /** Resets the estimator to a pose at the given module positions, keeping the current heading. */
+    public void resetPosition(SwerveModulePosition[] positions, Pose2d pose) {
+        for (int i = 0; i < moduleCount; i++) {
+            distances[i] = positions[i].distanceMeters;
+        }
+        resetPosition(distances, pose);
+    }
+
+    /** Resets the estimator to a pose at the given module distances, keeping the current heading. */
+    public void resetPosition(double[] distancesMeters, Pose2d pose) {
+        slipDetector.clearOffsets(); // The estimator restarts from uncorrected positions
+        poseEstimator.resetPosition(headingRad, distancesMeters, pose);
+    }
+
+    /** Returns the fused heading passed to the estimator with the last sample, in radians, unwrapped. */
+    public double getHeadingRad() {
+        return headingRad;
+    }
+
+    /**
+     * Returns the slip-corrected positions passed to the estimator with the last sample given as module positions.
+     * Reused every sample.
+     */
+    public SwerveModulePosition[] getCorrectedPositions() {
+        return correctedPositions;
+    }
+
+    /** Returns the heading filter. */
+    public HeadingFusion getHeadingFusion() {
+        return headingFusion;
+    }
+
+    /** Returns the slip detector. */
+    public SlipDetector getSlipDetector() {
+        return slipDetector;
+    }
+}
@@ -0,0 +1,188 @@
+package frc.robot.common.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+/**
+ * Detects wheel slip by comparing each module's motion against the rigid-body motion implied by the other modules and
+ * the gyro, and replaces a slipping module's delta with that prediction.
+ *
+ * <p>Each module's displacement over a sample is the chassis translation plus the gyro rotation applied at the module's
+ * location, so removing the rotation gives the chassis translation that module implies. Modules are first compared
+ * against the per-component median of those translations, which a minority of slipping wheels cannot drag along. A
+ * module further from the median than the threshold speed is marked as slipping. Slipping modules are then predicted
+ * from the mean translation of the modules that are not, and their distance deltas are replaced by the prediction
+ * projected onto their wheel directions. If half or more of the modules are marked, there is no trustworthy majority
+ * and nothing is corrected. Corrections accumulate as per-module distance offsets, so the corrected positions stay
+ * continuous for the pose estimator.
+ */
+public class SlipDetector {
+    private final int moduleCount;
+    private final double[] moduleX;
+    private final double[] moduleY;
+    private final double thresholdMetersPerSec;
+
+    private final double[] lastMeasuredDistances;
+    private final double[] distanceOffsets;
+    private final double[] translationX; // Chassis translation implied by each module
+    private final double[] translationY;
+    private final double[] sortScratch;
+    private final double[] scratchDistances; // Module positions unpacked by the overload that takes them
+    private final double[] scratchCos;
+    private final double[] scratchSin;
+    private final double[] scratchCorrected;
+    private final long[] slipCounts;
+    private boolean initialized = false;
+    private int lastSlipMask = 0;
+
+    public SlipDetector(Translation2d[] moduleTranslations, double thresholdMetersPerSec) {
+        moduleCount = moduleTranslations.length;
+        moduleX = new double[moduleCount];
+        moduleY = new double[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleX[i] = moduleTranslations[i].getX();
+            moduleY[i] = moduleTranslations[i].getY();
+        }
+        this.thresholdMetersPerSec = thresholdMetersPerSec;
+        lastMeasuredDistances = new double[moduleCount];
+        distanceOffsets = new double[moduleCount];
+        translationX = new double[moduleCount];
+        translationY = new double[moduleCount];
+        sortScratch = new double[moduleCount];
+        scratchDistances = new double[moduleCount];
+        scratchCos = new double[moduleCount];
+        scratchSin = new double[moduleCount];
+        scratchCorrected = new double[moduleCount];
+        slipCounts = new long[moduleCount];
+    }
+
+    /**
+     * Writes slip-corrected module positions for one odometry sample.
+     *
+     * @param measured Measured module positions.
+     * @param gyroDeltaRad Gyro rotation since the previous sample, or NaN to skip detection for this sample.
+     * @param dtSeconds Time since the previous sample.
+     * @param corrected Positions to write, with slipping modules' distances replaced by the rigid-body prediction.
+     * @return A mask with a bit set for each slipping module.
+     */
+    public int correct(
+            SwerveModulePosition[] measured, double gyroDeltaRad, double dtSeconds, SwerveModulePosition[] corrected) {
+        for (int i = 0; i < moduleCount; i++) {
+            scratchDistances[i] = measured[i].distanceMeters;
+            scratchCos[i] = measured[i].angle.getCos();
+            scratchSin[i] = measured[i].angle.getSin();
+        }
+        int slipMask = correct(scratchDistances, scratchCos, scratchSin, gyroDeltaRad, dtSeconds, scratchCorrected);
+        for (int i = 0; i < moduleCount; i++) {
+            corrected[i].distanceMeters = scratchCorrected[i];
+            corrected[i].angle = measured[i].angle;
+        }
+        return slipMask;
+    }
+
+    /**
+     * Writes slip-corrected module distances for one odometry sample, with each module angle given as its cosine and
+     * sine.
+     *
+     * @param measuredDistancesMeters Measured module distances.
+     * @param moduleCos Cosine of each module angle.
+     * @param moduleSin Sine of each module angle.
+     * @param gyroDeltaRad Gyro rotation since the previous sample, or NaN to skip detection for this sample.
+     * @param dtSeconds Time since the previous sample.
+     * @param correctedDistancesMeters Distances to write, with slipping modules' replaced by the rigid-body prediction.
+     * @return A mask with a bit set for each slipping module.
+     */
+    public int correct(
+            double[] measuredDistancesMeters,
+            double[] moduleCos,
+            double[] moduleSin,
+            double gyroDeltaRad,
+            double dtSeconds,
+            double[] correctedDistancesMeters) {
+        int slipMask = 0;
+        if (initialized && !Double.isNaN(gyroDeltaRad) && dtSeconds > 0.0) {
+            // Chassis translation implied by each module's displacement
+            for (int i = 0; i < moduleCount; i++) {
+                double distance = measuredDistancesMeters[i] - lastMeasuredDistances[i];
+                translationX[i] = distance * moduleCos[i] + gyroDeltaRad * moduleY[i];
+                translationY[i] = distance * moduleSin[i] - gyroDeltaRad * moduleX[i];
+            }
+
+            // Mark modules that disagree with the consensus
+            double medianX = median(translationX);
+            double medianY = median(translationY);
+            double threshold = thresholdMetersPerSec * dtSeconds;
+            int slipCount = 0;
+            double sumX = 0.0;
+            double sumY = 0.0;
+            for (int i = 0; i < moduleCount; i++) {
+                if (Math.hypot(translationX[i] - medianX, translationY[i] - medianY) > threshold) {
+                    slipMask |= 1 << i;
+                    slipCount++;
+                } else {
+                    sumX += translationX[i];
+                    sumY += translationY[i];
+                }
+            }
+
+            if (slipCount * 2 >= moduleCount) {
+                slipMask = 0; // No majority to predict from
+            } else if (slipMask != 0) {
+                // Predict slipping modules from the ones that are not
+                double consensusX = sumX / (moduleCount - slipCount);
+                double consensusY = sumY / (moduleCount - slipCount);
+                for (int i = 0; i < moduleCount; i++) {
+                    if ((slipMask & (1 << i)) == 0) {
+                        continue;
+                    }
+                    double predictedX = consensusX - gyroDeltaRad * moduleY[i];
+                    double predictedY = consensusY + gyroDeltaRad * moduleX[i];
+                    double measuredDistance = measuredDistancesMeters[i] - lastMeasuredDistances[i];
+                    double predictedDistance = predictedX * moduleCos[i] + predictedY * moduleSin[i];
+                    distanceOffsets[i] += predictedDistance - measuredDistance;
+                    slipCounts[i]++;
+                }
+            }
+        }
+
+        for (int i = 0; i < moduleCount; i++) {
+            lastMeasuredDistances[i] = measuredDistancesMeters[i];
+            correctedDistancesMeters[i] = measuredDistancesMeters[i] + distanceOffsets[i];
+        }
+        initialized = true;
+        lastSlipMask = slipMask;
+        return slipMask;
+    }
+
+    /** Returns the median of the values, sorting a scratch copy so nothing is allocated. */
+    private double median(double[] values) {
+        for (int i = 0; i < moduleCount; i++) {
+            double value = values[i];
+            int j = i;
+            while (j > 0 && sortScratch[j - 1] > value) {
+                sortScratch[j] = sortScratch[j - 1];
+                j--;
+            }
+            sortScratch[j] = value;
+        }
+        int middle = moduleCount / 2;
+        return moduleCount % 2 == 1 ? sortScratch[middle] : (sortScratch[middle - 1] + sortScratch[middle]) / 2.0;
+    }
+
+    /** Clears the accumulated corrections, e.g. when the pose estimator is reset to uncorrected positions. */
+    public void clearOffsets() {
+        for (int i = 0; i < moduleCount; i++) {
+            distanceOffsets[i] = 0.0;
+        }
+    }
+
+    /** Returns the number of samples each module has been marked as slipping. */
+    public long[] getSlipCounts() {
+        return slipCounts;
+    }
+
+    /** Returns the slip mask from the last sample. */
+    public int getLastSlipMask() {
+        return lastSlipMask;
+    }
+}
@@ -17,30 +17,117 @@ import com.revrobotics.REVLibError;
 import com.revrobotics.spark.SparkBase;
 import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Threads;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.DoubleSupplier;
 
 import frc.robot.GlobalConstants.driveConstants;
+import frc.robot.games.reefscape2025.subsystems.drive.DriveConstants.OdometryOverflowPolicy;
+import frc.robot.games.reefscape2025.subsystems.drive.DriveConstants.OdometrySamplerMode;
+import frc.robot.common.util.DoubleRingBuffer;
+import frc.robot.common.util.LatencyHistogram;
+import org.littletonrobotics.junction.Logger;
 
 /**
- * Provides an interface for asynchronously reading high-frequency measurements to a set of queues.
+ * Provides an interface for asynchronously reading high-frequency measurements to a set of queues. Each queue is a
+ * single-producer/single-consumer {@link DoubleRingBuffer}, so samples are never boxed.
  *
- * <p>This version includes an overload for Spark signals, which checks for errors to ensure that all measurements in
- * the sample are valid.
+ * <p>This version includes an overload for Spark signals, which checks each device for errors. A failed read does not
+ * discard the tick: that signal's value is written as {@link Double#NaN} and its bit is set in the tick's invalid mask,
+ * so consumers keep the healthy devices' samples and can hold or interpolate the faulty one.
+ *
+ * <p>The sampler never blocks. Each tick is published under a sequence lock: the sequence is odd while a tick is being
+ * written and even once it is complete. The consumer calls {@link #snapshot()} once per cycle to mark every queue at
+ * the same completed tick, retrying if a tick was in progress, so queues drained later in the cycle stay aligned. It
+ * calls {@link #release()} once every queue has been drained. The retries are bounded: the consumer runs at a higher
+ * priority than the sampler, so a sampler preempted mid-tick could otherwise be starved by the spinning consumer. After
+ * the last retry the consumer keeps the previous cut, reading no new samples that cycle, and counts a miss.
+ *
+ * <p>Each signal is registered at a rate. Signals registered at the same rate form a group with its own timestamp
+ * queues; the thread ticks at the fastest rate and samples slower groups every Nth tick. Consumers join groups by
+ * timestamp, not by index.
+ *
+ * <p>When a queue is full, the whole group's tick is handled by the configured {@link OdometryOverflowPolicy}, so every
+ * queue in a group always holds the same number of samples. Overwriting and coalescing touch queued samples, so while
+ * the consumer is between {@link #snapshot()} and {@link #release()} those policies fall back to dropping the new
+ * sample. A tick with a failed read is never coalesced, since the group's timestamp would advance while the failed
+ * signal kept its older value; it is dropped instead.
+ *
+ * <p>Ticks are scheduled either by a WPILib {@link Notifier} or, in {@link OdometrySamplerMode#REALTIME_THREAD}, by a
+ * dedicated real-time thread that sleeps for most of each period and spins on FPGA time for the rest. Each sample is
+ * stamped at the midpoint of its Spark reads.
+ *
+ * <p>Tick period, jitter, signal read duration and whole tick duration, including publishing and tick listeners, are
+ * recorded into histograms on the sampler and published at a low rate by {@link #periodicTelemetry()}, along with
+ * per-device invalid read counts and dropped sample counts.
  */
 public class SparkOdometryThread {
-    private final List<SparkBase> sparks = new ArrayList<>();
-    private final List<DoubleSupplier> sparkSignals = new ArrayList<>();
-    private final List<DoubleSupplier> genericSignals = new ArrayList<>();
-    private final List<Queue<Double>> sparkQueues = new ArrayList<>();
-    private final List<Queue<Double>> genericQueues = new ArrayList<>();
-    private final List<Queue<Double>> timestampQueues = new ArrayList<>();
+    /** Signals sampled together at one rate. Queues within a group always hold the same number of samples. */
+    private static class SignalGroup {
+        final double frequency;
+        final int queueCapacity;
+        int divider = 1;
+        final List<SparkBase> sparks = new ArrayList<>();
+        final List<DoubleSupplier> sparkSignals = new ArrayList<>();
+        final List<DoubleRingBuffer> sparkQueues = new ArrayList<>();
+        final List<Integer> sparkIndices = new ArrayList<>();
+        final List<DoubleSupplier> genericSignals = new ArrayList<>();
+        final List<DoubleRingBuffer> genericQueues = new ArrayList<>();
+        double[] genericValues = new double[0];
+        final List<DoubleRingBuffer> timestampQueues = new ArrayList<>();
+        final List<DoubleRingBuffer> queues = new ArrayList<>();
+        double[] sparkValues = new double[0];
+
+        SignalGroup(double frequency) {
+            this.frequency = frequency;
+            queueCapacity = (int) Math.ceil(frequency * driveConstants.odometryQueueSeconds);
+        }
+    }
+
+    private final List<SignalGroup> groups = new ArrayList<>();
+    private final List<Runnable> tickListeners = new ArrayList<>();
+    private final List<DoubleRingBuffer> allQueues = new ArrayList<>();
+    private int sparkSignalCount = 0;
+    private double baseFrequency = driveConstants.odometryFrequency;
+    private long tickIndex = 0;
+
+    // Sequence lock state
+    private static final int snapshotSpinAttempts = 100;
+    private static final int snapshotParkAttempts = 5;
+    private static final long snapshotParkNanos = 20_000;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean readerActive = false;
+    private volatile long writerContentions = 0;
+    private long readerRetries = 0;
+    private long snapshotMisses = 0;
+    private long[] snapshotLimits = new long[0];
+    private boolean started = false;
+
+    // Timing telemetry, recorded by the sampler and published from the main loop
+    private static final int telemetryPeriodCycles = 50;
+    private long nominalPeriodMicros = (long) (1e6 / driveConstants.odometryFrequency);
+    private final LatencyHistogram periodHistogram = new LatencyHistogram(250, 200);
+    private final LatencyHistogram jitterHistogram = new LatencyHistogram(50, 200);
+    private final LatencyHistogram readHistogram = new LatencyHistogram(10, 500);
+    private final LatencyHistogram tickHistogram = new LatencyHistogram(10, 500);
+    private long tickReadMicros = 0;
+    private volatile long tickCount = 0;
+    private volatile long invalidSamples = 0;
+    private volatile long invalidMask = 0;
+    private AtomicLongArray invalidReadCounts = new AtomicLongArray(0);
+    private volatile long droppedSamples = 0;
+    private volatile long overwrittenSamples = 0;
+    private volatile long coalescedSamples = 0;
+    private long lastTickMicros = 0;
+    private int telemetryCycles = 0;
 
     private static SparkOdometryThread instance = null;
     private Notifier notifier = new Notifier(this::run);
+    private Thread realtimeThread = new Thread(this::runRealtime, "OdometryThread");
 
     public static SparkOdometryThread getInstance() {
         if (instance == null) {
@@ -51,84 +138,363 @@ public class SparkOdometryThread {
 
     private SparkOdometryThread() {
         notifier.setName("OdometryThread");
+        realtimeThread.setDaemon(true);
     }
 
     public void start() {
-        if (!timestampQueues.isEmpty()) {
-            notifier.startPeriodic(1.0 / driveConstants.odometryFrequency);
+        started = true;
+        invalidReadCounts = new AtomicLongArray(sparkSignalCount);
+        snapshotLimits = new long[allQueues.size()];
+        if (allQueues.isEmpty()) {
+            return;
+        }
+
+        // Tick at the fastest registered rate and sample slower groups every Nth tick
+        baseFrequency = 0.0;
+        for (SignalGroup group : groups) {
+            baseFrequency = Math.max(baseFrequency, group.frequency);
+        }
+        for (SignalGroup group : groups) {
+            group.divider = Math.max(1, (int) Math.round(baseFrequency / group.frequency));
+        }
+        nominalPeriodMicros = (long) (1e6 / baseFrequency);
+
+        if (driveConstants.odometrySamplerMode == OdometrySamplerMode.REALTIME_THREAD) {
+            realtimeThread.start();
+        } else {
+            notifier.startPeriodic(1.0 / baseFrequency);
         }
     }
 
-    /** Registers a Spark signal to be read from the thread. */
-    public Queue<Double> registerSignal(SparkBase spark, DoubleSupplier signal) {
-        Queue<Double> queue = new ArrayBlockingQueue<>(20);
-        Drive.odometryLock.lock();
-        try {
-            sparks.add(spark);
-            sparkSignals.add(signal);
-            sparkQueues.add(queue);
-        } finally {
-            Drive.odometryLock.unlock();
+    /** Registers a Spark signal to be read from the thread at the default odometry rate. */
+    public DoubleRingBuffer registerSignal(SparkBase spark, DoubleSupplier signal) {
+        return registerSignal(spark, signal, driveConstants.odometryFrequency);
+    }
+
+    /** Registers a Spark signal to be read from the thread at the given rate. */
+    public DoubleRingBuffer registerSignal(SparkBase spark, DoubleSupplier signal, double frequencyHz) {
+        if (sparkSignalCount >= Long.SIZE) {
+            throw new IllegalStateException("Too many Spark odometry signals for the invalid mask");
         }
+        SignalGroup group = getGroup(frequencyHz);
+        DoubleRingBuffer queue = makeQueue(group);
+        group.sparks.add(spark);
+        group.sparkSignals.add(signal);
+        group.sparkQueues.add(queue);
+        group.sparkIndices.add(sparkSignalCount++);
+        group.sparkValues = new double[group.sparkSignals.size()];
         return queue;
     }
 
-    /** Registers a generic signal to be read from the thread. */
-    public Queue<Double> registerSignal(DoubleSupplier signal) {
-        Queue<Double> queue = new ArrayBlockingQueue<>(20);
-        Drive.odometryLock.lock();
-        try {
-            genericSignals.add(signal);
-            genericQueues.add(queue);
-        } finally {
-            Drive.odometryLock.unlock();
-        }
+    /** Registers a generic signal to be read from the thread at the default odometry rate. */
+    public DoubleRingBuffer registerSignal(DoubleSupplier signal) {
+        return registerSignal(signal, driveConstants.odometryFrequency);
+    }
+
+    /** Registers a generic signal to be read from the thread at the given rate. */
+    public DoubleRingBuffer registerSignal(DoubleSupplier signal, double frequencyHz) {
+        SignalGroup group = getGroup(frequencyHz);
+        DoubleRingBuffer queue = makeQueue(group);
+        group.genericSignals.add(signal);
+        group.genericQueues.add(queue);
+        group.genericValues = new double[group.genericSignals.size()];
         return queue;
     }
 
-    /** Returns a new queue that returns timestamp values for each sample. */
-    public Queue<Double> makeTimestampQueue() {
-        Queue<Double> queue = new ArrayBlockingQueue<>(20);
-        Drive.odometryLock.lock();
-        try {
-            timestampQueues.add(queue);
-        } finally {
-            Drive.odometryLock.unlock();
-        }
+    /** Returns a new queue that returns timestamp values for each sample at the default odometry rate. */
+    public DoubleRingBuffer makeTimestampQueue() {
+        return makeTimestampQueue(driveConstants.odometryFrequency);
+    }
+
+    /** Returns a new queue that returns timestamp values for each sample at the given rate. */
+    public DoubleRingBuffer makeTimestampQueue(double frequencyHz) {
+        SignalGroup group = getGroup(frequencyHz);
+        DoubleRingBuffer queue = makeQueue(group);
+        group.timestampQueues.add(queue);
         return queue;
     }
 
-    private void run() {
-        // Save new data to queues
-        Drive.odometryLock.lock();
-        try {
-            // Get sample timestamp
-            double timestamp = RobotController.getFPGATime() / 1e6;
-
-            // Read Spark values, mark invalid in case of error
-            double[] sparkValues = new double[sparkSignals.size()];
-            boolean isValid = true;
-            for (int i = 0; i < sparkSignals.size(); i++) {
-                sparkValues[i] = sparkSignals.get(i).getAsDouble();
-                if (sparks.get(i).getLastError() != REVLibError.kOk) {
-                    isValid = false;
-                }
+    /**
+     * Adds a callback run on the odometry thread after every tick. Listeners may read the newest sample of any queue
+     * with {@link DoubleRingBuffer#getLatest()}, but must not drain queues.
+     */
+    public void addTickListener(Runnable listener) {
+        if (started) {
+            throw new IllegalStateException("Odometry listeners must be added before the odometry thread starts");
+        }
+        tickListeners.add(listener);
+    }
+
+    private SignalGroup getGroup(double frequencyHz) {
+        for (SignalGroup group : groups) {
+            if (group.frequency == frequencyHz) {
+                return group;
             }
+        }
+        SignalGroup group = new SignalGroup(frequencyHz);
+        groups.add(group);
+        return group;
+    }
 
-            // If valid, add values to queues
-            if (isValid) {
-                for (int i = 0; i < sparkSignals.size(); i++) {
-                    sparkQueues.get(i).offer(sparkValues[i]);
-                }
-                for (int i = 0; i < genericSignals.size(); i++) {
-                    genericQueues.get(i).offer(genericSignals.get(i).getAsDouble());
+    private DoubleRingBuffer makeQueue(SignalGroup group) {
+        if (started) {
+            throw new IllegalStateException("Odometry signals must be registered before the odometry thread starts");
+        }
+        DoubleRingBuffer queue = new DoubleRingBuffer(group.queueCapacity);
+        group.queues.add(queue);
+        allQueues.add(queue);
+        return queue;
+    }
+
+    /**
+     * Marks every queue at the latest completed tick. Call once per cycle from the consuming thread, before any queue is
+     * drained, and follow with {@link #release()}. Never blocks the sampler. Retries a bounded number of times if a tick
+     * is being written, first spinning and then parking so a preempted sampler can finish. If every retry fails, the
+     * previous limits are kept and a miss is counted.
+     */
+    public void snapshot() {
+        readerActive = true;
+        for (int attempt = 0; attempt < snapshotSpinAttempts + snapshotParkAttempts; attempt++) {
+            long start = sequence.get();
+            if ((start & 1) == 0) {
+                for (int i = 0; i < snapshotLimits.length; i++) {
+                    snapshotLimits[i] = allQueues.get(i).getWriteCount();
                 }
-                for (int i = 0; i < timestampQueues.size(); i++) {
-                    timestampQueues.get(i).offer(timestamp);
+                if (sequence.get() == start) {
+                    for (int i = 0; i < snapshotLimits.length; i++) {
+                        allQueues.get(i).setLimit(snapshotLimits[i]);
+                    }
+                    return;
                 }
             }
-        } finally {
-            Drive.odometryLock.unlock();
+            readerRetries++;
+            if (attempt < snapshotSpinAttempts) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(snapshotParkNanos);
+            }
+        }
+        snapshotMisses++;
+    }
+
+    /** Ends the read started by {@link #snapshot()} once every queue has been drained. */
+    public void release() {
+        readerActive = false;
+    }
+
+    /** Returns the number of times {@link #snapshot()} had to retry because a tick was being written. */
+    public long getReaderRetries() {
+        return readerRetries;
+    }
+
+    /** Returns the number of snapshots that gave up and kept the previous limits. */
+    public long getSnapshotMisses() {
+        return snapshotMisses;
+    }
+
+    /** Returns the number of ticks written while a snapshot was in progress. The sampler never waits on these. */
+    public long getWriterContentions() {
+        return writerContentions;
+    }
+
+    /** Returns the number of samples discarded because a queue was full. */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    /** Returns the number of queued samples discarded to make room for newer ones. */
+    public long getOverwrittenSamples() {
+        return overwrittenSamples;
+    }
+
+    /** Returns the number of samples folded into the newest queued sample. */
+    public long getCoalescedSamples() {
+        return coalescedSamples;
+    }
+
+    /** Publishes sampler timing telemetry about once per second. Call once per cycle from the main loop. */
+    public void periodicTelemetry() {
+        if (++telemetryCycles < telemetryPeriodCycles) {
+            return;
+        }
+        telemetryCycles = 0;
+        periodHistogram.updateWindow();
+        jitterHistogram.updateWindow();
+        readHistogram.updateWindow();
+        tickHistogram.updateWindow();
+
+        Logger.recordOutput("Odometry/Thread/Mode", driveConstants.odometrySamplerMode.name());
+        Logger.recordOutput("Odometry/Thread/Ticks", tickCount);
+        Logger.recordOutput("Odometry/Thread/InvalidSamples", invalidSamples);
+        Logger.recordOutput("Odometry/Thread/InvalidMask", invalidMask);
+        long[] invalidReads = new long[invalidReadCounts.length()];
+        for (int i = 0; i < invalidReads.length; i++) {
+            invalidReads[i] = invalidReadCounts.get(i);
+        }
+        Logger.recordOutput("Odometry/Thread/InvalidReadsPerSignal", invalidReads);
+        Logger.recordOutput("Odometry/Thread/DroppedSamples", droppedSamples);
+        Logger.recordOutput("Odometry/Thread/OverwrittenSamples", overwrittenSamples);
+        Logger.recordOutput("Odometry/Thread/CoalescedSamples", coalescedSamples);
+        Logger.recordOutput("Odometry/Thread/PeriodMs/Mean", periodHistogram.getMeanMs());
+        Logger.recordOutput("Odometry/Thread/PeriodMs/P50", periodHistogram.getPercentileMs(0.5));
+        Logger.recordOutput("Odometry/Thread/PeriodMs/P99", periodHistogram.getPercentileMs(0.99));
+        Logger.recordOutput("Odometry/Thread/PeriodMs/Max", periodHistogram.getMaxMs());
+        Logger.recordOutput("Odometry/Thread/JitterMs/Mean", jitterHistogram.getMeanMs());
+        Logger.recordOutput("Odometry/Thread/JitterMs/P99", jitterHistogram.getPercentileMs(0.99));
+        Logger.recordOutput("Odometry/Thread/ReadMs/Mean", readHistogram.getMeanMs());
+        Logger.recordOutput("Odometry/Thread/ReadMs/P99", readHistogram.getPercentileMs(0.99));
+        Logger.recordOutput("Odometry/Thread/ReadMs/Max", readHistogram.getMaxMs());
+        Logger.recordOutput("Odometry/Thread/TickMs/Mean", tickHistogram.getMeanMs());
+        Logger.recordOutput("Odometry/Thread/TickMs/P99", tickHistogram.getPercentileMs(0.99));
+        Logger.recordOutput("Odometry/Thread/TickMs/Max", tickHistogram.getMaxMs());
+    }
+
+    /** Runs ticks on the dedicated thread, waking as close to each period boundary as possible. */
+    private void runRealtime() {
+        Threads.setCurrentThreadPriority(true, driveConstants.odometryThreadPriority);
+        long nextTickMicros = RobotController.getFPGATime();
+        while (true) {
+            nextTickMicros += nominalPeriodMicros;
+
+            // Sleep through most of the period, then spin for the last part
+            long remainingMicros = nextTickMicros - RobotController.getFPGATime();
+            if (remainingMicros > driveConstants.odometrySpinThresholdMicros) {
+                LockSupport.parkNanos((remainingMicros - driveConstants.odometrySpinThresholdMicros) * 1000);
+            }
+            while (RobotController.getFPGATime() < nextTickMicros) {
+                Thread.onSpinWait();
+            }
+
+            run();
+
+            // Resynchronize after a long stall instead of running a burst of late ticks
+            long nowMicros = RobotController.getFPGATime();
+            if (nowMicros - nextTickMicros > nominalPeriodMicros) {
+                nextTickMicros = nowMicros;
+            }
+        }
+    }
+
+    private void run() {
+        // Record the actual period
+        long tickMicros = RobotController.getFPGATime();
+        if (lastTickMicros != 0) {
+            long periodMicros = tickMicros - lastTickMicros;
+            periodHistogram.record(periodMicros);
+            jitterHistogram.record(Math.abs(periodMicros - nominalPeriodMicros));
+        }
+        lastTickMicros = tickMicros;
+        tickCount++;
+
+        // Publish every group due this tick
+        sequence.incrementAndGet();
+        boolean readerBusy = readerActive;
+        if (readerBusy) {
+            writerContentions++;
+        }
+        long mask = 0;
+        tickReadMicros = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            SignalGroup group = groups.get(i);
+            if (tickIndex % group.divider == 0) {
+                mask |= sampleGroup(group, readerBusy);
+            }
+        }
+        tickIndex++;
+        sequence.incrementAndGet();
+
+        for (int i = 0; i < tickListeners.size(); i++) {
+            tickListeners.get(i).run();
+        }
+
+        readHistogram.record(tickReadMicros);
+        tickHistogram.record(RobotController.getFPGATime() - tickMicros);
+        invalidMask = mask;
+        if (mask != 0) {
+            invalidSamples++;
+        }
+    }
+
+    /** Reads and publishes one group's signals. Returns the invalid mask bits for its Spark signals. */
+    private long sampleGroup(SignalGroup group, boolean readerBusy) {
+        // Read Spark values, marking each failed read in the mask
+        long readStartMicros = RobotController.getFPGATime();
+        long mask = 0;
+        for (int i = 0; i < group.sparkSignals.size(); i++) {
+            group.sparkValues[i] = group.sparkSignals.get(i).getAsDouble();
+            if (group.sparks.get(i).getLastError() != REVLibError.kOk) {
+                int sparkIndex = group.sparkIndices.get(i);
+                group.sparkValues[i] = Double.NaN;
+                mask |= 1L << sparkIndex;
+                invalidReadCounts.lazySet(sparkIndex, invalidReadCounts.get(sparkIndex) + 1);
+            }
+        }
+        long readEndMicros = RobotController.getFPGATime();
+        double timestamp = (readStartMicros + readEndMicros) / 2.0 / 1e6; // Midpoint of the reads
+        for (int i = 0; i < group.genericSignals.size(); i++) {
+            group.genericValues[i] = group.genericSignals.get(i).getAsDouble();
+        }
+        tickReadMicros += RobotController.getFPGATime() - readStartMicros;
+
+        // Expose this tick to listeners even if the overflow policy drops it from the queues
+        for (int i = 0; i < group.sparkSignals.size(); i++) {
+            group.sparkQueues.get(i).setLatest(group.sparkValues[i]);
+        }
+        for (int i = 0; i < group.genericSignals.size(); i++) {
+            group.genericQueues.get(i).setLatest(group.genericValues[i]);
+        }
+        for (int i = 0; i < group.timestampQueues.size(); i++) {
+            group.timestampQueues.get(i).setLatest(timestamp);
+        }
+
+        // Publish values to queues
+        OdometryOverflowPolicy policy = driveConstants.odometryOverflowPolicy;
+        if (!anyQueueFull(group)) {
+            publish(group, timestamp, false);
+        } else if (policy == OdometryOverflowPolicy.DROP_NEWEST || readerBusy) {
+            droppedSamples++;
+        } else if (policy == OdometryOverflowPolicy.OVERWRITE_OLDEST) {
+            publish(group, timestamp, false);
+            overwrittenSamples++;
+        } else if (mask != 0) {
+            // Keep the newest queued sample and its timestamp intact rather than folding in a partial tick
+            droppedSamples++;
+        } else {
+            publish(group, timestamp, true);
+            coalescedSamples++;
+        }
+        return mask;
+    }
+
+    private static boolean anyQueueFull(SignalGroup group) {
+        for (int i = 0; i < group.queues.size(); i++) {
+            if (group.queues.get(i).isFull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes one tick to every queue in the group, either as a new sample or folded into the newest one. */
+    private static void publish(SignalGroup group, double timestamp, boolean coalesce) {
+        for (int i = 0; i < group.sparkSignals.size(); i++) {
+            write(group.sparkQueues.get(i), group.sparkValues[i], coalesce);
+        }
+        for (int i = 0; i < group.genericSignals.size(); i++) {
+            write(group.genericQueues.get(i), group.genericValues[i], coalesce);
+        }
+        for (int i = 0; i < group.timestampQueues.size(); i++) {
+            write(group.timestampQueues.get(i), timestamp, coalesce);
+        }
+    }
+
+    private static void write(DoubleRingBuffer queue, double value, boolean coalesce) {
+        // Signals are cumulative positions, so replacing the newest sample carries its motion forward. Only fully valid
+        // ticks are coalesced, so the value and its timestamp always move together.
+        if (coalesce) {
+            queue.replaceNewest(value);
+        } else {
+            queue.overwriteOldest(value);
         }
     }
 }
@@ -0,0 +1,101 @@
+package frc.robot.common.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Measures how a module's steering responds to step changes in its angle setpoint.
+ *
+ * <p>A step is a setpoint change larger than the step threshold between two updates. From each step the monitor records
+ * the time until the error stays within tolerance for a few updates in a row, and the largest overshoot past the target.
+ * A new step before the module settles restarts the measurement, and a step that does not settle within the timeout is
+ * dropped.
+ */
+public class SteeringResponseMonitor {
+    private static final int settledUpdates = 3;
+    private static final double timeoutSeconds = 1.0;
+
+    private final double stepThresholdRad;
+    private final double toleranceRad;
+
+    private double lastSetpointRad = Double.NaN;
+    private boolean measuring = false;
+    private double stepTimestamp = 0.0;
+    private double stepDirection = 0.0;
+    private double overshootRad = 0.0;
+    private double firstSettledTimestamp = 0.0;
+    private int settledCount = 0;
+
+    private double lastSettleTimeSeconds = Double.NaN;
+    private double lastOvershootRad = Double.NaN;
+    private long completedSteps = 0;
+
+    /**
+     * Creates a monitor.
+     *
+     * @param stepThresholdRad Setpoint change between updates that starts a measurement.
+     * @param toleranceRad Error within which the module counts as settled.
+     */
+    public SteeringResponseMonitor(double stepThresholdRad, double toleranceRad) {
+        this.stepThresholdRad = stepThresholdRad;
+        this.toleranceRad = toleranceRad;
+    }
+
+    /**
+     * Updates the measurement with the current setpoint and angle.
+     *
+     * @return Whether a step finished settling at this update.
+     */
+    public boolean update(double timestamp, double setpointRad, double angleRad) {
+        double errorRad = MathUtil.angleModulus(setpointRad - angleRad);
+        if (!Double.isNaN(lastSetpointRad)
+                && Math.abs(MathUtil.angleModulus(setpointRad - lastSetpointRad)) > stepThresholdRad) {
+            measuring = true;
+            stepTimestamp = timestamp;
+            stepDirection = Math.signum(errorRad);
+            overshootRad = 0.0;
+            settledCount = 0;
+        }
+        lastSetpointRad = setpointRad;
+        if (!measuring) {
+            return false;
+        }
+
+        // Error of the opposite sign to the initial error is past the target
+        overshootRad = Math.max(overshootRad, -stepDirection * errorRad);
+        if (Math.abs(errorRad) <= toleranceRad) {
+            if (settledCount == 0) {
+                firstSettledTimestamp = timestamp;
+            }
+            settledCount++;
+        } else {
+            settledCount = 0;
+        }
+
+        if (settledCount >= settledUpdates) {
+            measuring = false;
+            lastSettleTimeSeconds = firstSettledTimestamp - stepTimestamp;
+            lastOvershootRad = overshootRad;
+            completedSteps++;
+            return true;
+        }
+        if (timestamp - stepTimestamp > timeoutSeconds) {
+            measuring = false;
+        }
+        return false;
+    }
+
+    /** Returns the settle time of the last completed step in seconds, or NaN if none has completed. */
+    public double getLastSettleTimeSeconds() {
+        return lastSettleTimeSeconds;
+    }
+
+    /** Returns the overshoot of the last completed step in radians, or NaN if none has completed. */
+    public double getLastOvershootRad() {
+        return lastOvershootRad;
+    }
+
+    /** Returns the number of steps that have settled. */
+    public long getCompletedSteps() {
+        return completedSteps;
+    }
+}
@@ -0,0 +1,584 @@
+package frc.robot.common.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import java.util.Optional;
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Swerve pose estimator with the same interface and fusion math as WPILib's {@link SwerveDrivePoseEstimator}, backed by
+ * fixed-capacity primitive arrays.
+ *
+ * <p>Odometry poses are kept in a ring of timestamped x/y/theta samples and sampled with a binary search. Each vision
+ * measurement is stored with its gain. A measurement older than ones already applied is inserted in time order and the
+ * later measurements are re-applied on top of it. Neither path replays odometry, so a delayed measurement costs one
+ * pass over the vision measurements after it.
+ *
+ * <p>With measurements added in time order the estimate matches WPILib's. Late measurements are the one deliberate
+ * difference: WPILib discards every measurement newer than a late one, while this estimator keeps them, giving the
+ * estimate WPILib would have reached had the measurements arrived in time order. Cameras with different latencies
+ * therefore do not erase each other's corrections.
+ */
+public class SwervePoseEstimator {
+    /** Length of the odometry history, matching WPILib's estimator. */
+    public static final double historySeconds = 1.5;
+
+    private static final int visionCapacity = 64;
+
+    // Forward kinematics, the 3 x 2n pseudo-inverse of the inverse kinematics matrix, row-major
+    private final int moduleCount;
+    private final double[] forwardKinematics;
+    private final double[] q = new double[3];
+
+    // Odometry state
+    private final double[] previousDistances;
+    private final double[] scratchDistances; // Module positions unpacked by the overloads that take them
+    private final double[] scratchCos;
+    private final double[] scratchSin;
+    private double odometryX = 0.0;
+    private double odometryY = 0.0;
+    private double odometryTheta = 0.0;
+    private double gyroOffset = 0.0;
+    private double previousAngle = 0.0;
+
+    // Odometry history ring, oldest sample at head
+    private final double[] sampleTimes;
+    private final double[] sampleX;
+    private final double[] sampleY;
+    private final double[] sampleTheta;
+    private int sampleHead = 0;
+    private int sampleCount = 0;
+
+    // Vision updates in time order: the raw measurement, its gain, and the corrected and odometry poses at its time
+    private final double[] visionTimes = new double[visionCapacity];
+    private final double[] measuredX = new double[visionCapacity];
+    private final double[] measuredY = new double[visionCapacity];
+    private final double[] measuredTheta = new double[visionCapacity];
+    private final double[] gainX = new double[visionCapacity];
+    private final double[] gainY = new double[visionCapacity];
+    private final double[] gainTheta = new double[visionCapacity];
+    private final double[] visionX = new double[visionCapacity];
+    private final double[] visionY = new double[visionCapacity];
+    private final double[] visionTheta = new double[visionCapacity];
+    private final double[] visionOdometryX = new double[visionCapacity];
+    private final double[] visionOdometryY = new double[visionCapacity];
+    private final double[] visionOdometryTheta = new double[visionCapacity];
+    private int visionCount = 0;
+    private final double[] defaultVisionStdDevs = new double[3];
+    private double defaultGainX;
+    private double defaultGainY;
+    private double defaultGainTheta;
+
+    // Current estimate, and a pose object built from it on demand
+    private double estimateX = 0.0;
+    private double estimateY = 0.0;
+    private double estimateTheta = 0.0;
+    private Pose2d estimatedPose = null;
+
+    // Output of the primitive pose helpers
+    private double outX;
+    private double outY;
+    private double outTheta;
+
+    /**
+     * Constructs an estimator with the WPILib default standard deviations of 0.1 m, 0.1 m, 0.1 rad for odometry and
+     * 0.9 m, 0.9 m, 0.9 rad for vision.
+     */
+    public SwervePoseEstimator(
+            Translation2d[] moduleTranslations,
+            Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions,
+            Pose2d initialPoseMeters,
+            int historyCapacity) {
+        this(
+                moduleTranslations,
+                gyroAngle,
+                modulePositions,
+                initialPoseMeters,
+                historyCapacity,
+                new double[] {0.1, 0.1, 0.1},
+                new double[] {0.9, 0.9, 0.9});
+    }
+
+    /**
+     * Constructs an estimator.
+     *
+     * @param moduleTranslations Module locations relative to the robot center.
+     * @param gyroAngle The current gyro angle.
+     * @param modulePositions The current module positions.
+     * @param initialPoseMeters The starting pose estimate.
+     * @param historyCapacity Odometry samples kept for vision fusion. Should cover 1.5 s at the rate samples actually
+     *     arrive, or older samples are dropped early.
+     * @param stateStdDevs Odometry standard deviations in meters, meters and radians.
+     * @param visionMeasurementStdDevs Default vision standard deviations in meters, meters and radians.
+     */
+    public SwervePoseEstimator(
+            Translation2d[] moduleTranslations,
+            Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions,
+            Pose2d initialPoseMeters,
+            int historyCapacity,
+            double[] stateStdDevs,
+            double[] visionMeasurementStdDevs) {
+        moduleCount = moduleTranslations.length;
+        previousDistances = new double[moduleCount];
+        scratchDistances = new double[moduleCount];
+        scratchCos = new double[moduleCount];
+        scratchSin = new double[moduleCount];
+        sampleTimes = new double[historyCapacity];
+        sampleX = new double[historyCapacity];
+        sampleY = new double[historyCapacity];
+        sampleTheta = new double[historyCapacity];
+
+        SimpleMatrix inverseKinematics = new SimpleMatrix(moduleCount * 2, 3);
+        for (int i = 0; i < moduleCount; i++) {
+            inverseKinematics.setRow(i * 2, 0, 1, 0, -moduleTranslations[i].getY());
+            inverseKinematics.setRow(i * 2 + 1, 0, 0, 1, moduleTranslations[i].getX());
+        }
+        SimpleMatrix pseudoInverse = inverseKinematics.pseudoInverse();
+        forwardKinematics = new double[3 * moduleCount * 2];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < moduleCount * 2; col++) {
+                forwardKinematics[row * moduleCount * 2 + col] = pseudoInverse.get(row, col);
+            }
+        }
+
+        setStateStdDevs(stateStdDevs[0], stateStdDevs[1], stateStdDevs[2]);
+        setVisionMeasurementStdDevs(
+                visionMeasurementStdDevs[0], visionMeasurementStdDevs[1], visionMeasurementStdDevs[2]);
+        resetPosition(gyroAngle, modulePositions, initialPoseMeters);
+    }
+
+    /**
+     * Sets the odometry standard deviations in meters, meters and radians. Vision measurements added afterwards use the
+     * new values; those already applied keep their gains.
+     */
+    public void setStateStdDevs(double x, double y, double theta) {
+        q[0] = x * x;
+        q[1] = y * y;
+        q[2] = theta * theta;
+        updateDefaultGains();
+    }
+
+    /** Sets the default vision standard deviations in meters, meters and radians. */
+    public void setVisionMeasurementStdDevs(double x, double y, double theta) {
+        defaultVisionStdDevs[0] = x;
+        defaultVisionStdDevs[1] = y;
+        defaultVisionStdDevs[2] = theta;
+        updateDefaultGains();
+    }
+
+    private void updateDefaultGains() {
+        defaultGainX = gain(q[0], defaultVisionStdDevs[0]);
+        defaultGainY = gain(q[1], defaultVisionStdDevs[1]);
+        defaultGainTheta = gain(q[2], defaultVisionStdDevs[2]);
+    }
+
+    /** Sets the default vision standard deviations in meters, meters and radians. */
+    public void setVisionMeasurementStdDevs(Matrix<N3, N1> visionMeasurementStdDevs) {
+        setVisionMeasurementStdDevs(
+                visionMeasurementStdDevs.get(0, 0), visionMeasurementStdDevs.get(1, 0), visionMeasurementStdDevs.get(2, 0));
+    }
+
+    /** Closed-form Kalman gain for a diagonal state and measurement covariance, as used by WPILib. */
+    private static double gain(double stateVariance, double measurementStdDev) {
+        if (stateVariance == 0.0) {
+            return 0.0;
+        }
+        double measurementVariance = measurementStdDev * measurementStdDev;
+        return stateVariance / (stateVariance + Math.sqrt(stateVariance * measurementVariance));
+    }
+
+    /** Resets the estimate to a pose, clearing the odometry history and vision updates. */
+    public void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, Pose2d poseMeters) {
+        for (int i = 0; i < moduleCount; i++) {
+            scratchDistances[i] = modulePositions[i].distanceMeters;
+        }
+        resetPosition(gyroAngle.getRadians(), scratchDistances, poseMeters);
+    }
+
+    /** Resets the estimate to a pose at the given module distances, clearing the history and vision updates. */
+    public void resetPosition(double gyroAngleRad, double[] moduleDistancesMeters, Pose2d poseMeters) {
+        odometryX = poseMeters.getX();
+        odometryY = poseMeters.getY();
+        odometryTheta = poseMeters.getRotation().getRadians();
+        gyroOffset = odometryTheta - gyroAngleRad;
+        previousAngle = odometryTheta;
+        for (int i = 0; i < moduleCount; i++) {
+            previousDistances[i] = moduleDistancesMeters[i];
+        }
+        sampleHead = 0;
+        sampleCount = 0;
+        visionCount = 0;
+        setEstimate(odometryX, odometryY, odometryTheta);
+    }
+
+    /** Returns the current pose estimate. */
+    public Pose2d getEstimatedPosition() {
+        if (estimatedPose == null) {
+            estimatedPose = new Pose2d(estimateX, estimateY, new Rotation2d(estimateTheta));
+        }
+        return estimatedPose;
+    }
+
+    /**
+     * Returns the estimated pose at a timestamp, clamped to the odometry history, with the vision updates known so far
+     * applied. Empty if there is no history.
+     */
+    public Optional<Pose2d> sampleAt(double timestampSeconds) {
+        if (sampleCount == 0) {
+            return Optional.empty();
+        }
+        sampleEstimate(timestampSeconds);
+        return Optional.of(new Pose2d(outX, outY, new Rotation2d(outTheta)));
+    }
+
+    /** Returns the timestamp of the oldest odometry sample in the history, or NaN if there is none. */
+    public double getOldestSampleTimestamp() {
+        return sampleCount == 0 ? Double.NaN : sampleTime(0);
+    }
+
+    /**
+     * Updates the estimate with wheel positions and the gyro angle at a timestamp. Timestamps should increase; a sample
+     * at or before the newest one replaces the history from that point.
+     *
+     * @return The updated pose estimate.
+     */
+    public Pose2d updateWithTime(double timestampSeconds, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
+        updateWithTime(timestampSeconds, gyroAngle.getRadians(), modulePositions);
+        return getEstimatedPosition();
+    }
+
+    /**
+     * Updates the estimate with wheel positions and the gyro angle in radians at a timestamp, without allocating.
+     * Timestamps should increase; a sample at or before the newest one replaces the history from that point.
+     */
+    public void updateWithTime(double timestampSeconds, double gyroAngleRad, SwerveModulePosition[] modulePositions) {
+        for (int i = 0; i < moduleCount; i++) {
+            scratchDistances[i] = modulePositions[i].distanceMeters;
+            scratchCos[i] = modulePositions[i].angle.getCos();
+            scratchSin[i] = modulePositions[i].angle.getSin();
+        }
+        updateWithTime(timestampSeconds, gyroAngleRad, scratchDistances, scratchCos, scratchSin);
+    }
+
+    /**
+     * Updates the estimate with module distances, the cosine and sine of each module angle, and the gyro angle in
+     * radians at a timestamp, without allocating. Timestamps should increase; a sample at or before the newest one
+     * replaces the history from that point.
+     */
+    public void updateWithTime(
+            double timestampSeconds,
+            double gyroAngleRad,
+            double[] moduleDistancesMeters,
+            double[] moduleCos,
+            double[] moduleSin) {
+        // Chassis motion from the module deltas, with the rotation taken from the gyro
+        double dx = 0.0;
+        double dy = 0.0;
+        int columns = moduleCount * 2;
+        for (int i = 0; i < moduleCount; i++) {
+            double distance = moduleDistancesMeters[i] - previousDistances[i];
+            double moduleDx = distance * moduleCos[i];
+            double moduleDy = distance * moduleSin[i];
+            dx += forwardKinematics[i * 2] * moduleDx + forwardKinematics[i * 2 + 1] * moduleDy;
+            dy += forwardKinematics[columns + i * 2] * moduleDx + forwardKinematics[columns + i * 2 + 1] * moduleDy;
+            previousDistances[i] = moduleDistancesMeters[i];
+        }
+        double angle = MathUtil.angleModulus(gyroAngleRad + gyroOffset);
+        exp(odometryX, odometryY, odometryTheta, dx, dy, MathUtil.angleModulus(angle - previousAngle));
+        odometryX = outX;
+        odometryY = outY;
+        odometryTheta = angle;
+        previousAngle = angle;
+
+        addSample(timestampSeconds, odometryX, odometryY, odometryTheta);
+        updateEstimate();
+    }
+
+    /**
+     * Adds a vision measurement with the default standard deviations. Measurements newer than this one are re-applied
+     * on top of it rather than discarded.
+     */
+    public void addVisionMeasurement(Pose2d visionRobotPoseMeters, double timestampSeconds) {
+        addVisionMeasurement(visionRobotPoseMeters, timestampSeconds, defaultGainX, defaultGainY, defaultGainTheta);
+    }
+
+    /**
+     * Adds a vision measurement with its own standard deviations in meters, meters and radians. Measurements newer than
+     * this one are re-applied on top of it rather than discarded.
+     */
+    public void addVisionMeasurement(
+            Pose2d visionRobotPoseMeters, double timestampSeconds, Matrix<N3, N1> visionMeasurementStdDevs) {
+        addVisionMeasurement(
+                visionRobotPoseMeters,
+                timestampSeconds,
+                gain(q[0], visionMeasurementStdDevs.get(0, 0)),
+                gain(q[1], visionMeasurementStdDevs.get(1, 0)),
+                gain(q[2], visionMeasurementStdDevs.get(2, 0)));
+    }
+
+    private void addVisionMeasurement(Pose2d pose, double timestamp, double kx, double ky, double ktheta) {
+        // Ignore measurements older than the odometry history
+        if (sampleCount == 0 || sampleTime(sampleCount - 1) - historySeconds > timestamp) {
+            return;
+        }
+        cleanUpVisionUpdates();
+
+        // Insert after any update at the same time, so it is applied on top of them
+        int index = visionCount;
+        while (index > 0 && visionTimes[index - 1] > timestamp) {
+            index--;
+        }
+        if (visionCount == visionCapacity) {
+            if (index == 0) {
+                return;
+            }
+            removeVisionUpdates(1);
+            index--;
+        }
+        for (int i = visionCount; i > index; i--) {
+            copyVisionUpdate(i - 1, i);
+        }
+        visionCount++;
+        visionTimes[index] = timestamp;
+        measuredX[index] = pose.getX();
+        measuredY[index] = pose.getY();
+        measuredTheta[index] = pose.getRotation().getRadians();
+        gainX[index] = kx;
+        gainY[index] = ky;
+        gainTheta[index] = ktheta;
+
+        // Re-apply this and every later update on top of the corrected history
+        for (int i = index; i < visionCount; i++) {
+            applyVisionUpdate(i);
+        }
+        updateEstimate();
+    }
+
+    /** Computes update {@code i} from its measurement and the estimate just before it. */
+    private void applyVisionUpdate(int i) {
+        double time = visionTimes[i];
+        sampleOdometry(time);
+        double odomX = outX;
+        double odomY = outY;
+        double odomTheta = outTheta;
+        if (i > 0) {
+            compensate(i - 1, odomX, odomY, odomTheta);
+        }
+        double estX = outX;
+        double estY = outY;
+        double estTheta = outTheta;
+
+        log(estX, estY, estTheta, measuredX[i], measuredY[i], measuredTheta[i]);
+        exp(estX, estY, estTheta, gainX[i] * outX, gainY[i] * outY, gainTheta[i] * outTheta);
+        visionX[i] = outX;
+        visionY[i] = outY;
+        visionTheta[i] = outTheta;
+        visionOdometryX[i] = odomX;
+        visionOdometryY[i] = odomY;
+        visionOdometryTheta[i] = odomTheta;
+    }
+
+    /** Drops vision updates older than the odometry history, keeping the newest one before it. */
+    private void cleanUpVisionUpdates() {
+        if (sampleCount == 0 || visionCount == 0) {
+            return;
+        }
+        double oldestOdometryTime = sampleTime(0);
+        int floor = -1;
+        for (int i = 0; i < visionCount && visionTimes[i] <= oldestOdometryTime; i++) {
+            floor = i;
+        }
+        if (floor > 0) {
+            removeVisionUpdates(floor);
+        }
+    }
+
+    private void removeVisionUpdates(int count) {
+        for (int i = count; i < visionCount; i++) {
+            copyVisionUpdate(i, i - count);
+        }
+        visionCount -= count;
+    }
+
+    private void copyVisionUpdate(int from, int to) {
+        visionTimes[to] = visionTimes[from];
+        measuredX[to] = measuredX[from];
+        measuredY[to] = measuredY[from];
+        measuredTheta[to] = measuredTheta[from];
+        gainX[to] = gainX[from];
+        gainY[to] = gainY[from];
+        gainTheta[to] = gainTheta[from];
+        visionX[to] = visionX[from];
+        visionY[to] = visionY[from];
+        visionTheta[to] = visionTheta[from];
+        visionOdometryX[to] = visionOdometryX[from];
+        visionOdometryY[to] = visionOdometryY[from];
+        visionOdometryTheta[to] = visionOdometryTheta[from];
+    }
+
+    /** Recomputes the current estimate from the current odometry pose and the newest vision update. */
+    private void updateEstimate() {
+        if (visionCount == 0) {
+            setEstimate(odometryX, odometryY, odometryTheta);
+        } else {
+            compensate(visionCount - 1, odometryX, odometryY, odometryTheta);
+            setEstimate(outX, outY, outTheta);
+        }
+    }
+
+    private void setEstimate(double x, double y, double theta) {
+        estimateX = x;
+        estimateY = y;
+        estimateTheta = theta;
+        estimatedPose = null;
+    }
+
+    /** Sets the output to the estimated pose at a timestamp, clamped to the odometry history. */
+    private void sampleEstimate(double timestamp) {
+        // Clamp before choosing the vision update, as WPILib does
+        timestamp = MathUtil.clamp(timestamp, sampleTime(0), sampleTime(sampleCount - 1));
+        sampleOdometry(timestamp);
+        int update = -1;
+        for (int i = 0; i < visionCount && visionTimes[i] <= timestamp; i++) {
+            update = i;
+        }
+        if (update >= 0) {
+            compensate(update, outX, outY, outTheta);
+        }
+    }
+
+    /** Sets the output to a pose with the odometry motion since vision update {@code i} applied to its correction. */
+    private void compensate(int i, double x, double y, double theta) {
+        // Odometry motion since the update, in the frame of the odometry pose at the update
+        double baseTheta = visionOdometryTheta[i];
+        double cos = Math.cos(baseTheta);
+        double sin = Math.sin(baseTheta);
+        double deltaX = x - visionOdometryX[i];
+        double deltaY = y - visionOdometryY[i];
+        double localX = deltaX * cos + deltaY * sin;
+        double localY = -deltaX * sin + deltaY * cos;
+        double localTheta = theta - baseTheta;
+
+        // Applied to the corrected pose
+        double visionCos = Math.cos(visionTheta[i]);
+        double visionSin = Math.sin(visionTheta[i]);
+        outX = visionX[i] + localX * visionCos - localY * visionSin;
+        outY = visionY[i] + localX * visionSin + localY * visionCos;
+        outTheta = MathUtil.angleModulus(visionTheta[i] + localTheta);
+    }
+
+    private void addSample(double timestamp, double x, double y, double theta) {
+        // Keep samples in time order and within the history window
+        while (sampleCount > 0 && sampleTime(sampleCount - 1) >= timestamp) {
+            sampleCount--;
+        }
+        while (sampleCount > 0 && timestamp - sampleTime(0) >= historySeconds) { // Same cut as WPILib
+            sampleHead = (sampleHead + 1) % sampleTimes.length;
+            sampleCount--;
+        }
+        if (sampleCount == sampleTimes.length) {
+            sampleHead = (sampleHead + 1) % sampleTimes.length;
+            sampleCount--;
+        }
+        int index = (sampleHead + sampleCount) % sampleTimes.length;
+        sampleTimes[index] = timestamp;
+        sampleX[index] = x;
+        sampleY[index] = y;
+        sampleTheta[index] = theta;
+        sampleCount++;
+    }
+
+    private double sampleTime(int logicalIndex) {
+        return sampleTimes[(sampleHead + logicalIndex) % sampleTimes.length];
+    }
+
+    /** Sets the output to the odometry pose at a timestamp, interpolated along a twist and clamped to the history. */
+    private void sampleOdometry(double timestamp) {
+        // Find the newest sample at or before the timestamp
+        int low = 0;
+        int high = sampleCount - 1;
+        if (timestamp <= sampleTime(0)) {
+            high = 0;
+        } else if (timestamp >= sampleTime(high)) {
+            low = high;
+        } else {
+            while (high - low > 1) {
+                int mid = (low + high) >>> 1;
+                if (sampleTime(mid) <= timestamp) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+        }
+
+        int start = (sampleHead + low) % sampleTimes.length;
+        if (low == high || sampleTimes[start] == timestamp) {
+            outX = sampleX[start];
+            outY = sampleY[start];
+            outTheta = sampleTheta[start];
+            return;
+        }
+        int end = (sampleHead + high) % sampleTimes.length;
+        double t = (timestamp - sampleTimes[start]) / (sampleTimes[end] - sampleTimes[start]);
+        double startX = sampleX[start];
+        double startY = sampleY[start];
+        double startTheta = sampleTheta[start];
+        log(startX, startY, startTheta, sampleX[end], sampleY[end], sampleTheta[end]);
+        exp(startX, startY, startTheta, outX * t, outY * t, outTheta * t);
+    }
+
+    /** Sets the output to the pose reached by following a robot-relative twist from a pose. */
+    private void exp(double x, double y, double theta, double dx, double dy, double dtheta) {
+        double sinTheta = Math.sin(dtheta);
+        double cosTheta = Math.cos(dtheta);
+        double s;
+        double c;
+        if (Math.abs(dtheta) < 1E-9) {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = 0.5 * dtheta;
+        } else {
+            s = sinTheta / dtheta;
+            c = (1 - cosTheta) / dtheta;
+        }
+        double localX = dx * s - dy * c;
+        double localY = dx * c + dy * s;
+        double cos = Math.cos(theta);
+        double sin = Math.sin(theta);
+        outX = x + localX * cos - localY * sin;
+        outY = y + localX * sin + localY * cos;
+        outTheta = MathUtil.angleModulus(theta + dtheta);
+    }
+
+    /** Sets the output to the robot-relative twist that moves from the start pose to the end pose. */
+    private void log(double startX, double startY, double startTheta, double endX, double endY, double endTheta) {
+        double cos = Math.cos(startTheta);
+        double sin = Math.sin(startTheta);
+        double deltaX = endX - startX;
+        double deltaY = endY - startY;
+        double localX = deltaX * cos + deltaY * sin;
+        double localY = -deltaX * sin + deltaY * cos;
+        double dtheta = MathUtil.angleModulus(endTheta - startTheta);
+
+        double halfDtheta = dtheta / 2.0;
+        double cosMinusOne = Math.cos(dtheta) - 1;
+        double halfThetaByTanOfHalfDtheta;
+        if (Math.abs(cosMinusOne) < 1E-9) {
+            halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+        }
+        outX = localX * halfThetaByTanOfHalfDtheta + localY * halfDtheta;
+        outY = -localX * halfDtheta + localY * halfThetaByTanOfHalfDtheta;
+        outTheta = dtheta;
+    }
+}
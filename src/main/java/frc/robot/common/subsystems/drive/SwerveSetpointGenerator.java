@@ -0,0 +1,158 @@
+package frc.robot.common.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Limits how quickly the commanded chassis speeds can change so that every module stays within its drive acceleration
+ * and steering rate limits.
+ *
+ * <p>Module velocities are linear in the chassis speeds, so the generator moves from the previous setpoint toward the
+ * desired one by the largest fraction every module can follow. It finds that fraction for each module with a fixed
+ * number of bisection steps, bounding the cost per loop, and uses the smallest. A module that is stopped is not
+ * steering-limited: it turns in place while its speed ramps up, and cosine scaling in {@link Module} holds back drive
+ * output until it is aligned.
+ */
+public class SwerveSetpointGenerator {
+    private static final int bisectionIterations = 10;
+    private static final double stoppedSpeedMetersPerSec = 1e-3;
+
+    private final int moduleCount;
+    private final double[] moduleX;
+    private final double[] moduleY;
+    private final double maxSpeedMetersPerSec;
+    private final double maxAccelMetersPerSecSq;
+    private final double maxSteerRateRadPerSec;
+
+    // Previous setpoint, and each module's velocity and heading under it
+    private double previousVx = 0.0;
+    private double previousVy = 0.0;
+    private double previousOmega = 0.0;
+    private final double[] previousModuleVx;
+    private final double[] previousModuleVy;
+    private final double[] previousModuleAngles;
+
+    private double lastFraction = 1.0;
+
+    public SwerveSetpointGenerator(
+            Translation2d[] moduleTranslations,
+            double maxSpeedMetersPerSec,
+            double maxAccelMetersPerSecSq,
+            double maxSteerRateRadPerSec) {
+        moduleCount = moduleTranslations.length;
+        moduleX = new double[moduleCount];
+        moduleY = new double[moduleCount];
+        previousModuleVx = new double[moduleCount];
+        previousModuleVy = new double[moduleCount];
+        previousModuleAngles = new double[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleX[i] = moduleTranslations[i].getX();
+            moduleY[i] = moduleTranslations[i].getY();
+        }
+        this.maxSpeedMetersPerSec = maxSpeedMetersPerSec;
+        this.maxAccelMetersPerSecSq = maxAccelMetersPerSecSq;
+        this.maxSteerRateRadPerSec = maxSteerRateRadPerSec;
+    }
+
+    /**
+     * Writes the next feasible setpoint toward the desired robot-relative speeds into {@code output}, which may be the
+     * same object as {@code desired}.
+     */
+    public void calculate(ChassisSpeeds desired, double dtSeconds, ChassisSpeeds output) {
+        // Scale the request down uniformly if any module would exceed its maximum speed
+        double desiredVx = desired.vxMetersPerSecond;
+        double desiredVy = desired.vyMetersPerSecond;
+        double desiredOmega = desired.omegaRadiansPerSecond;
+        double maxModuleSpeed = 0.0;
+        for (int i = 0; i < moduleCount; i++) {
+            maxModuleSpeed = Math.max(
+                    maxModuleSpeed,
+                    Math.hypot(desiredVx - desiredOmega * moduleY[i], desiredVy + desiredOmega * moduleX[i]));
+        }
+        if (maxModuleSpeed > maxSpeedMetersPerSec) {
+            double scale = maxSpeedMetersPerSec / maxModuleSpeed;
+            desiredVx *= scale;
+            desiredVy *= scale;
+            desiredOmega *= scale;
+        }
+
+        // Largest step toward the request that every module can follow
+        double maxSpeedChange = maxAccelMetersPerSecSq * dtSeconds;
+        double maxAngleChange = maxSteerRateRadPerSec * dtSeconds;
+        double fraction = 1.0;
+        for (int i = 0; i < moduleCount; i++) {
+            double targetVx = desiredVx - desiredOmega * moduleY[i];
+            double targetVy = desiredVy + desiredOmega * moduleX[i];
+            if (isFeasible(i, targetVx, targetVy, 1.0, maxSpeedChange, maxAngleChange)) {
+                continue;
+            }
+            double low = 0.0;
+            double high = Math.min(fraction, 1.0);
+            for (int iteration = 0; iteration < bisectionIterations; iteration++) {
+                double mid = (low + high) / 2.0;
+                if (isFeasible(i, targetVx, targetVy, mid, maxSpeedChange, maxAngleChange)) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            fraction = Math.min(fraction, low);
+        }
+        lastFraction = fraction;
+
+        setPrevious(
+                previousVx + (desiredVx - previousVx) * fraction,
+                previousVy + (desiredVy - previousVy) * fraction,
+                previousOmega + (desiredOmega - previousOmega) * fraction);
+        output.vxMetersPerSecond = previousVx;
+        output.vyMetersPerSecond = previousVy;
+        output.omegaRadiansPerSecond = previousOmega;
+    }
+
+    /** Returns whether module {@code i} can move the given fraction of the way to its target velocity this loop. */
+    private boolean isFeasible(
+            int i, double targetVx, double targetVy, double fraction, double maxSpeedChange, double maxAngleChange) {
+        double vx = previousModuleVx[i] + (targetVx - previousModuleVx[i]) * fraction;
+        double vy = previousModuleVy[i] + (targetVy - previousModuleVy[i]) * fraction;
+        double speed = Math.hypot(vx, vy);
+        double previousSpeed = Math.hypot(previousModuleVx[i], previousModuleVy[i]);
+        if (Math.abs(speed - previousSpeed) > maxSpeedChange) {
+            return false;
+        }
+        if (speed < stoppedSpeedMetersPerSec || previousSpeed < stoppedSpeedMetersPerSec) {
+            return true;
+        }
+
+        // Modules can reverse drive direction, so steering only needs to reach the angle modulo pi
+        double angleChange = MathUtil.angleModulus(Math.atan2(vy, vx) - previousModuleAngles[i]);
+        if (Math.abs(angleChange) > Math.PI / 2.0) {
+            angleChange -= Math.copySign(Math.PI, angleChange);
+        }
+        return Math.abs(angleChange) <= maxAngleChange;
+    }
+
+    /** Resets the previous setpoint, e.g. to the measured speeds while disabled. */
+    public void reset(ChassisSpeeds speeds) {
+        setPrevious(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+        lastFraction = 1.0;
+    }
+
+    private void setPrevious(double vx, double vy, double omega) {
+        previousVx = vx;
+        previousVy = vy;
+        previousOmega = omega;
+        for (int i = 0; i < moduleCount; i++) {
+            previousModuleVx[i] = vx - omega * moduleY[i];
+            previousModuleVy[i] = vy + omega * moduleX[i];
+            if (Math.hypot(previousModuleVx[i], previousModuleVy[i]) >= stoppedSpeedMetersPerSec) {
+                previousModuleAngles[i] = Math.atan2(previousModuleVy[i], previousModuleVx[i]);
+            }
+        }
+    }
+
+    /** Returns the fraction of the requested change applied by the last {@link #calculate}. */
+    public double getLastFraction() {
+        return lastFraction;
+    }
+}
@@ -0,0 +1,130 @@
+package frc.robot.common.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+
+/**
+ * Allocation-free swerve inverse kinematics for the module setpoint path. Matches {@link ChassisSpeeds#discretize},
+ * {@link SwerveDriveKinematics#toSwerveModuleStates} and {@link SwerveDriveKinematics#desaturateWheelSpeeds}, writing
+ * into preallocated primitive arrays instead of returning new objects.
+ *
+ * <p>Like WPILib's kinematics, a zero chassis speed, or a module with no speed of its own, keeps the previous heading.
+ */
+public class SwerveSetpointKinematics {
+    private final int moduleCount;
+    private final double[] moduleX;
+    private final double[] moduleY;
+    private final double[] speedsMetersPerSec;
+    private final double[] anglesRad;
+    private final double[] steerRatesRadPerSec;
+
+    private double discreteVx = 0.0;
+    private double discreteVy = 0.0;
+    private double discreteOmega = 0.0;
+
+    public SwerveSetpointKinematics(Translation2d[] moduleTranslations) {
+        moduleCount = moduleTranslations.length;
+        moduleX = new double[moduleCount];
+        moduleY = new double[moduleCount];
+        speedsMetersPerSec = new double[moduleCount];
+        anglesRad = new double[moduleCount];
+        steerRatesRadPerSec = new double[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleX[i] = moduleTranslations[i].getX();
+            moduleY[i] = moduleTranslations[i].getY();
+        }
+    }
+
+    /**
+     * Computes module setpoints for robot-relative chassis speeds held for one period, then scales them so no module
+     * exceeds the maximum speed. Results are read with {@link #getSpeedMetersPerSec(int)} and {@link #getAngleRad(int)}.
+     */
+    public void calculate(
+            double vxMetersPerSec, double vyMetersPerSec, double omegaRadPerSec, double dtSeconds, double maxSpeed) {
+        discretize(vxMetersPerSec, vyMetersPerSec, omegaRadPerSec, dtSeconds);
+
+        // Zero speed keeps the previous headings
+        if (discreteVx == 0.0 && discreteVy == 0.0 && discreteOmega == 0.0) {
+            for (int i = 0; i < moduleCount; i++) {
+                speedsMetersPerSec[i] = 0.0;
+                steerRatesRadPerSec[i] = 0.0;
+            }
+            return;
+        }
+
+        double maxModuleSpeed = 0.0;
+        for (int i = 0; i < moduleCount; i++) {
+            double vx = discreteVx - discreteOmega * moduleY[i];
+            double vy = discreteVy + discreteOmega * moduleX[i];
+            double speed = Math.hypot(vx, vy);
+            speedsMetersPerSec[i] = speed;
+            if (speed > 1e-6) {
+                anglesRad[i] = Math.atan2(vy, vx); // A module at the center of rotation keeps its heading
+            }
+            // Holding field-relative speeds while rotating turns the robot-relative translation at -omega
+            steerRatesRadPerSec[i] =
+                    speed > 1e-6 ? -discreteOmega * (vx * discreteVx + vy * discreteVy) / (speed * speed) : 0.0;
+            maxModuleSpeed = Math.max(maxModuleSpeed, speed);
+        }
+
+        // Desaturate
+        if (maxModuleSpeed > maxSpeed) {
+            double scale = maxSpeed / maxModuleSpeed;
+            for (int i = 0; i < moduleCount; i++) {
+                speedsMetersPerSec[i] *= scale;
+            }
+        }
+    }
+
+    /** Converts a velocity held for one period into the constant-curvature velocity with the same end pose. */
+    private void discretize(double vx, double vy, double omega, double dt) {
+        double dx = vx * dt;
+        double dy = vy * dt;
+        double dtheta = MathUtil.angleModulus(omega * dt);
+
+        // Pose2d log from the origin
+        double halfDtheta = dtheta / 2.0;
+        double cosMinusOne = Math.cos(dtheta) - 1;
+        double halfThetaByTanOfHalfDtheta;
+        if (Math.abs(cosMinusOne) < 1E-9) {
+            halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+        }
+        discreteVx = (dx * halfThetaByTanOfHalfDtheta + dy * halfDtheta) / dt;
+        discreteVy = (-dx * halfDtheta + dy * halfThetaByTanOfHalfDtheta) / dt;
+        discreteOmega = dtheta / dt;
+    }
+
+    /** Sets each module's heading, used until a nonzero speed is requested. */
+    public void resetHeadings(double[] headingsRad) {
+        System.arraycopy(headingsRad, 0, anglesRad, 0, moduleCount);
+    }
+
+    /** Writes the discretized chassis speeds from the last {@link #calculate} into the given object. */
+    public void getDiscretizedSpeeds(ChassisSpeeds speeds) {
+        speeds.vxMetersPerSecond = discreteVx;
+        speeds.vyMetersPerSecond = discreteVy;
+        speeds.omegaRadiansPerSecond = discreteOmega;
+    }
+
+    /** Returns a module's desaturated speed setpoint in meters per second. */
+    public double getSpeedMetersPerSec(int module) {
+        return speedsMetersPerSec[module];
+    }
+
+    /** Returns a module's angle setpoint in radians. */
+    public double getAngleRad(int module) {
+        return anglesRad[module];
+    }
+
+    /**
+     * Returns the rate at which a module's angle setpoint turns in radians per second, assuming the chassis rotates at
+     * the commanded rate while holding its field-relative translation. Used as a steering feedforward.
+     */
+    public double getSteerRateRadPerSec(int module) {
+        return steerRatesRadPerSec[module];
+    }
+}
@@ -0,0 +1,37 @@
+package frc.robot.common.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the calling thread between {@link #start()} and {@link #stop()}, so tests can check
+ * that a code path does not allocate.
+ */
+public class AllocationMonitor {
+    private static final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+
+    private long startBytes = 0;
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    /** Returns whether the JVM can report per-thread allocations. */
+    public static boolean isSupported() {
+        return threadBean != null;
+    }
+
+    /** Starts a measurement on the calling thread. */
+    public void start() {
+        startBytes = isSupported() ? threadBean.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /** Returns the bytes allocated by the calling thread since {@link #start()}, or -1 if unsupported. */
+    public long stop() {
+        return isSupported() ? threadBean.getCurrentThreadAllocatedBytes() - startBytes : -1;
+    }
+}
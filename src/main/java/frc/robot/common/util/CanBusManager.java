@@ -0,0 +1,156 @@
+package frc.robot.common.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.revrobotics.spark.config.SparkBaseConfig;
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.Alert;
+import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.RobotController;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Central budget for CAN status traffic. Each subsystem declares which Spark signals it reads and how often, and the
+ * manager sets the device's status frame periods to match, slowing every unused signal down. Phoenix devices register
+ * the signals they have already rate-limited.
+ *
+ * <p>From the registered rates the manager estimates the bus load and logs it next to the load the roboRIO measures,
+ * so the odometry rate can be raised with a known margin. Devices may register from configuration threads.
+ */
+public class CanBusManager {
+    /** Spark signals, with the status frame that carries each one. */
+    public enum SparkSignal {
+        APPLIED_OUTPUT(0),
+        BUS_VOLTAGE(0),
+        OUTPUT_CURRENT(0),
+        MOTOR_TEMPERATURE(0),
+        FAULTS(1),
+        WARNINGS(1),
+        PRIMARY_ENCODER_VELOCITY(2),
+        PRIMARY_ENCODER_POSITION(2),
+        ANALOG_SENSOR(3),
+        EXTERNAL_ENCODER(4),
+        ABSOLUTE_ENCODER(5);
+
+        public final int frame;
+
+        SparkSignal(int frame) {
+            this.frame = frame;
+        }
+    }
+
+    private static final int sparkFrameCount = 6;
+    private static final int unusedSignalPeriodMs = 500;
+    private static final double bitRate = 1e6; // Bits per second
+    private static final double bitsPerFrame = 135.0; // Extended frame with 8 data bytes, worst-case bit stuffing
+    private static final double highUtilization = 0.8;
+
+    private static final CanBusManager instance = new CanBusManager();
+
+    private record Device(String logKey, double framesPerSec) {}
+
+    private final List<Device> devices = new CopyOnWriteArrayList<>();
+    private final Alert highUtilizationAlert =
+            new Alert("CAN bus utilization is high; status frames may be delayed.", AlertType.kWarning);
+    private double estimatedFramesPerSec = 0.0;
+
+    public static CanBusManager getInstance() {
+        return instance;
+    }
+
+    private CanBusManager() {}
+
+    /**
+     * Sets a Spark's status frame periods from the signals it uses, and records its traffic. Signals not listed are sent
+     * at a slow keep-alive period. The config still has to be applied by the caller.
+     *
+     * @param name Device name for logging.
+     * @param config The device's config, whose signal periods are overwritten.
+     * @param signalRatesHz Rate at which each used signal is read.
+     * @param controlRateHz Rate at which the device is sent control frames.
+     */
+    public void budgetSpark(
+            String name, SparkBaseConfig config, Map<SparkSignal, Double> signalRatesHz, double controlRateHz) {
+        EnumMap<SparkSignal, Integer> periodsMs = new EnumMap<>(SparkSignal.class);
+        for (SparkSignal signal : SparkSignal.values()) {
+            Double rateHz = signalRatesHz.get(signal);
+            periodsMs.put(signal, rateHz == null ? unusedSignalPeriodMs : (int) Math.round(1000.0 / rateHz));
+        }
+        config.signals
+                .appliedOutputPeriodMs(periodsMs.get(SparkSignal.APPLIED_OUTPUT))
+                .busVoltagePeriodMs(periodsMs.get(SparkSignal.BUS_VOLTAGE))
+                .outputCurrentPeriodMs(periodsMs.get(SparkSignal.OUTPUT_CURRENT))
+                .motorTemperaturePeriodMs(periodsMs.get(SparkSignal.MOTOR_TEMPERATURE))
+                .faultsPeriodMs(periodsMs.get(SparkSignal.FAULTS))
+                .warningsPeriodMs(periodsMs.get(SparkSignal.WARNINGS))
+                .primaryEncoderVelocityPeriodMs(periodsMs.get(SparkSignal.PRIMARY_ENCODER_VELOCITY))
+                .primaryEncoderPositionPeriodMs(periodsMs.get(SparkSignal.PRIMARY_ENCODER_POSITION))
+                .analogPositionPeriodMs(periodsMs.get(SparkSignal.ANALOG_SENSOR))
+                .analogVelocityPeriodMs(periodsMs.get(SparkSignal.ANALOG_SENSOR))
+                .analogVoltagePeriodMs(periodsMs.get(SparkSignal.ANALOG_SENSOR))
+                .externalOrAltEncoderPosition(periodsMs.get(SparkSignal.EXTERNAL_ENCODER))
+                .externalOrAltEncoderVelocity(periodsMs.get(SparkSignal.EXTERNAL_ENCODER))
+                .absoluteEncoderPositionPeriodMs(periodsMs.get(SparkSignal.ABSOLUTE_ENCODER))
+                .absoluteEncoderVelocityPeriodMs(periodsMs.get(SparkSignal.ABSOLUTE_ENCODER));
+
+        // Each frame is sent at the fastest period of the signals it carries
+        int[] framePeriodsMs = new int[sparkFrameCount];
+        for (int frame = 0; frame < sparkFrameCount; frame++) {
+            framePeriodsMs[frame] = unusedSignalPeriodMs;
+        }
+        for (SparkSignal signal : SparkSignal.values()) {
+            framePeriodsMs[signal.frame] = Math.min(framePeriodsMs[signal.frame], periodsMs.get(signal));
+        }
+        double framesPerSec = controlRateHz;
+        for (int periodMs : framePeriodsMs) {
+            framesPerSec += 1000.0 / periodMs;
+        }
+        addDevice(name, framesPerSec);
+    }
+
+    /**
+     * Records a Phoenix device's traffic from signals whose update frequencies have already been set. Call after
+     * {@code optimizeBusUtilization}, so signals it disabled are not counted.
+     */
+    public void registerPhoenix(String name, BaseStatusSignal... signals) {
+        double framesPerSec = 0.0;
+        for (BaseStatusSignal signal : signals) {
+            framesPerSec += signal.getAppliedUpdateFrequency();
+        }
+        addDevice(name, framesPerSec);
+    }
+
+    private synchronized void addDevice(String name, double framesPerSec) {
+        devices.add(new Device("CAN/Devices/" + name + "/FramesPerSec", framesPerSec));
+        estimatedFramesPerSec += framesPerSec;
+    }
+
+    /** Returns the estimated fraction of the bus used by registered traffic. */
+    public synchronized double getEstimatedUtilization() {
+        return estimatedFramesPerSec * bitsPerFrame / bitRate;
+    }
+
+    /** Returns the estimated frames per second of registered traffic. */
+    public synchronized double getEstimatedFramesPerSec() {
+        return estimatedFramesPerSec;
+    }
+
+    /** Logs the estimated and measured bus load. Call once per loop. */
+    public void periodic() {
+        CANStatus status = RobotController.getCANStatus();
+        Logger.recordOutput("CAN/EstimatedUtilization", getEstimatedUtilization());
+        Logger.recordOutput("CAN/EstimatedFramesPerSec", getEstimatedFramesPerSec());
+        Logger.recordOutput("CAN/MeasuredUtilization", status.percentBusUtilization);
+        Logger.recordOutput("CAN/BusOffCount", status.busOffCount);
+        Logger.recordOutput("CAN/TxFullCount", status.txFullCount);
+        Logger.recordOutput("CAN/ReceiveErrorCount", status.receiveErrorCount);
+        Logger.recordOutput("CAN/TransmitErrorCount", status.transmitErrorCount);
+        for (Device device : devices) {
+            Logger.recordOutput(device.logKey(), device.framesPerSec());
+        }
+        highUtilizationAlert.set(status.percentBusUtilization > highUtilization);
+    }
+}
@@ -0,0 +1,138 @@
+package frc.robot.common.util;
+
+import com.ctre.phoenix6.StatusCode;
+import com.revrobotics.REVLibError;
+import com.revrobotics.spark.SparkBase;
+import com.revrobotics.spark.SparkBase.PersistMode;
+import com.revrobotics.spark.SparkBase.ResetMode;
+import com.revrobotics.spark.config.SparkBaseConfig;
+import edu.wpi.first.wpilibj.Alert;
+import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.Preferences;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Configures motor controllers and sensors at boot. Each subsystem submits its device setup as a task, and tasks run in
+ * parallel on a small pool, so independent devices are configured at the same time instead of one after another.
+ * Steps within a task still run in order.
+ *
+ * <p>Spark configs are applied with retries. The hash of each full config last persisted to flash is kept in
+ * {@link Preferences}. When it matches, the config is only applied to RAM, which skips the slow flash write on every
+ * reboot after the first. Partial configs, which only adjust a device's existing settings, are never persisted. Each
+ * device's config time, and any task failure, is logged once everything is done.
+ */
+public class DeviceConfigService {
+    private static final int threadCount = 4;
+    private static final int maxAttempts = 5;
+    private static final String hashKeyPrefix = "DeviceConfigHash/";
+
+    private static final DeviceConfigService instance = new DeviceConfigService();
+
+    private record Result(String name, double millis, boolean ok, boolean persisted, String error) {}
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+        Thread thread = new Thread(runnable, "DeviceConfig");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<>();
+    private final Alert failedAlert = new Alert("", AlertType.kError);
+    private final List<String> failedDevices = new ArrayList<>();
+
+    public static DeviceConfigService getInstance() {
+        return instance;
+    }
+
+    private DeviceConfigService() {}
+
+    /** Runs a device setup task on the pool. Main thread only. */
+    public void submit(String name, Runnable task) {
+        pending.add(CompletableFuture.runAsync(task, executor).exceptionally(e -> {
+            results.add(new Result(name, 0.0, false, false, e.toString()));
+            return null;
+        }));
+    }
+
+    /**
+     * Applies a full Spark config on top of reset safe parameters, writing it to flash only if it differs from the last
+     * one persisted for this device. Safe to call from any thread.
+     *
+     * @return Whether the config was applied.
+     */
+    public boolean configureSpark(String name, SparkBase spark, SparkBaseConfig config) {
+        long startNanos = System.nanoTime();
+        String hashKey = hashKeyPrefix + name;
+        int hash = config.flatten().hashCode();
+        boolean persist = Preferences.getInt(hashKey, 0) != hash;
+        PersistMode persistMode = persist ? PersistMode.kPersistParameters : PersistMode.kNoPersistParameters;
+        boolean ok = SparkUtil.tryUntilOk(
+                spark, maxAttempts, () -> spark.configure(config, ResetMode.kResetSafeParameters, persistMode));
+        if (ok && persist) {
+            Preferences.setInt(hashKey, hash);
+        }
+        results.add(new Result(name, (System.nanoTime() - startNanos) / 1e6, ok, persist, null));
+        return ok;
+    }
+
+    /**
+     * Applies a partial Spark config to RAM, leaving the device's other settings and its flash untouched. Safe to call
+     * from any thread.
+     *
+     * @return Whether the config was applied.
+     */
+    public boolean applySpark(String name, SparkBase spark, SparkBaseConfig config) {
+        return runSpark(
+                name,
+                spark,
+                () -> spark.configure(config, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters));
+    }
+
+    /** Runs a Spark command, such as setting an encoder position, with retries. Safe to call from any thread. */
+    public boolean runSpark(String name, SparkBase spark, Supplier<REVLibError> command) {
+        long startNanos = System.nanoTime();
+        boolean ok = SparkUtil.tryUntilOk(spark, maxAttempts, command);
+        results.add(new Result(name, (System.nanoTime() - startNanos) / 1e6, ok, false, null));
+        return ok;
+    }
+
+    /** Applies a Phoenix config, or waits for a signal, with retries. Safe to call from any thread. */
+    public boolean configurePhoenix(String name, Supplier<StatusCode> apply) {
+        long startNanos = System.nanoTime();
+        boolean ok = false;
+        for (int i = 0; i < maxAttempts && !ok; i++) {
+            ok = apply.get().isOK();
+        }
+        results.add(new Result(name, (System.nanoTime() - startNanos) / 1e6, ok, false, null));
+        return ok;
+    }
+
+    /** Waits for every submitted task, then logs each device's config time. Main thread only. */
+    public void awaitAll() {
+        long startNanos = System.nanoTime();
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        pending.clear();
+        Logger.recordOutput("DeviceConfig/WaitMillis", (System.nanoTime() - startNanos) / 1e6);
+
+        Result result;
+        while ((result = results.poll()) != null) {
+            Logger.recordOutput("DeviceConfig/" + result.name() + "/Millis", result.millis());
+            Logger.recordOutput("DeviceConfig/" + result.name() + "/Persisted", result.persisted());
+            if (result.error() != null) {
+                Logger.recordOutput("DeviceConfig/" + result.name() + "/Error", result.error());
+            }
+            if (!result.ok()) {
+                failedDevices.add(result.name());
+            }
+        }
+        failedAlert.setText("Failed to configure: " + String.join(", ", failedDevices));
+        failedAlert.set(!failedDevices.isEmpty());
+    }
+}
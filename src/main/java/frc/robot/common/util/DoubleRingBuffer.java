@@ -0,0 +1,137 @@
+package frc.robot.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-capacity ring buffer of primitive doubles for one producer thread and one consumer thread.
+ *
+ * <p>The producer only advances the write index and the consumer only advances the read index, so neither side takes a
+ * lock and no values are boxed. Capacity is rounded up to a power of two.
+ *
+ * <p>The consumer may call {@link #setLimit(long)} to fix the set of values it will read, which lets several buffers
+ * filled by the same producer be drained to a consistent cut.
+ */
+public class DoubleRingBuffer {
+    private final double[] buffer;
+    private final int mask;
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+    private long readLimit = Long.MAX_VALUE;
+    private double latest = Double.NaN;
+
+    public DoubleRingBuffer(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(1, minCapacity - 1)) << 1;
+        buffer = new double[capacity];
+        mask = capacity - 1;
+    }
+
+    /** Adds a value to the buffer. Producer only. Returns false if the buffer is full. */
+    public boolean offer(double value) {
+        long write = writeIndex.get();
+        if (write - readIndex.get() >= buffer.length) {
+            return false;
+        }
+        buffer[(int) (write & mask)] = value;
+        writeIndex.lazySet(write + 1);
+        return true;
+    }
+
+    /**
+     * Adds a value, discarding the oldest value if the buffer is full. Producer only, and only while the consumer is
+     * not reading.
+     *
+     * @return True if a value was discarded.
+     */
+    public boolean overwriteOldest(double value) {
+        boolean full = isFull();
+        if (full) {
+            readIndex.lazySet(readIndex.get() + 1);
+        }
+        offer(value);
+        return full;
+    }
+
+    /**
+     * Replaces the newest value, or adds the value if the buffer is empty. Producer only, and only while the consumer is
+     * not reading.
+     */
+    public void replaceNewest(double value) {
+        long write = writeIndex.get();
+        if (write == readIndex.get()) {
+            offer(value);
+        } else {
+            buffer[(int) ((write - 1) & mask)] = value;
+        }
+    }
+
+    /** Returns whether the next {@link #offer(double)} would fail. Producer only. */
+    public boolean isFull() {
+        return writeIndex.get() - readIndex.get() >= buffer.length;
+    }
+
+    /**
+     * Moves up to {@code destination.length} values into the destination array, oldest first. Consumer only.
+     *
+     * @return The number of values copied.
+     */
+    public int drainTo(double[] destination) {
+        return drainTo(destination, destination.length);
+    }
+
+    /**
+     * Moves up to {@code maxCount} values into the destination array, oldest first. Consumer only.
+     *
+     * @return The number of values copied.
+     */
+    public int drainTo(double[] destination, int maxCount) {
+        long read = readIndex.get();
+        int count = (int) Math.max(0, Math.min(readableIndex() - read, Math.min(maxCount, destination.length)));
+        for (int i = 0; i < count; i++) {
+            destination[i] = buffer[(int) ((read + i) & mask)];
+        }
+        readIndex.lazySet(read + count);
+        return count;
+    }
+
+    /** Discards all values the consumer can currently read. Consumer only. */
+    public void clear() {
+        readIndex.lazySet(readableIndex());
+    }
+
+    /** Returns the total number of values ever written, for use with {@link #setLimit(long)}. */
+    public long getWriteCount() {
+        return writeIndex.get();
+    }
+
+    /**
+     * Limits reads to the first {@code writeCount} values ever written, until the next call. Consumer only. Lets the
+     * consumer choose limits for several buffers and apply them only once it knows they are consistent.
+     */
+    public void setLimit(long writeCount) {
+        readLimit = writeCount;
+    }
+
+    /** Returns the number of values the consumer can currently read. */
+    public int size() {
+        return (int) Math.max(0, readableIndex() - readIndex.get());
+    }
+
+    private long readableIndex() {
+        return Math.min(writeIndex.get(), readLimit);
+    }
+
+    /** Records the newest sampled value, whether or not it was queued. Producer only. */
+    public void setLatest(double value) {
+        latest = value;
+    }
+
+    /** Returns the value passed to the last {@link #setLatest(double)}, or NaN if none. Producer only. */
+    public double getLatest() {
+        return latest;
+    }
+
+    /** Returns the maximum number of values the buffer can hold. */
+    public int capacity() {
+        return buffer.length;
+    }
+}
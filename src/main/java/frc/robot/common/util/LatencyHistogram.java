@@ -0,0 +1,94 @@
+package frc.robot.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket histogram of durations in microseconds, recorded by one thread and read by another.
+ *
+ * <p>The recorder only increments cumulative counts. The reader calls {@link #updateWindow()} to diff those counts
+ * against its previous call, so statistics cover the rolling window between reads without ever resetting shared
+ * state.
+ */
+public class LatencyHistogram {
+    private final long bucketWidthMicros;
+    private final AtomicLongArray counts;
+    private final AtomicLong sumMicros = new AtomicLong();
+
+    // Reader-owned window state
+    private final long[] lastCounts;
+    private final long[] windowCounts;
+    private long lastSumMicros = 0;
+    private long windowCount = 0;
+    private long windowSumMicros = 0;
+
+    /**
+     * Creates a new histogram.
+     *
+     * @param bucketWidthMicros Width of each bucket in microseconds.
+     * @param bucketCount Number of buckets. Values past the last bucket are counted in it.
+     */
+    public LatencyHistogram(long bucketWidthMicros, int bucketCount) {
+        this.bucketWidthMicros = bucketWidthMicros;
+        counts = new AtomicLongArray(bucketCount);
+        lastCounts = new long[bucketCount];
+        windowCounts = new long[bucketCount];
+    }
+
+    /** Records one duration. Recording thread only. */
+    public void record(long micros) {
+        int bucket = (int) Math.min(Math.max(micros, 0) / bucketWidthMicros, counts.length() - 1);
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+        sumMicros.lazySet(sumMicros.get() + micros);
+    }
+
+    /** Captures all values recorded since the previous call as the current window. Reading thread only. */
+    public void updateWindow() {
+        windowCount = 0;
+        for (int i = 0; i < windowCounts.length; i++) {
+            long count = counts.get(i);
+            windowCounts[i] = count - lastCounts[i];
+            lastCounts[i] = count;
+            windowCount += windowCounts[i];
+        }
+        long sum = sumMicros.get();
+        windowSumMicros = sum - lastSumMicros;
+        lastSumMicros = sum;
+    }
+
+    /** Returns the number of values in the current window. */
+    public long getCount() {
+        return windowCount;
+    }
+
+    /** Returns the mean of the current window in milliseconds. */
+    public double getMeanMs() {
+        return windowCount == 0 ? 0.0 : windowSumMicros / 1000.0 / windowCount;
+    }
+
+    /** Returns the upper edge of the bucket holding the given percentile (0 to 1) of the current window, in ms. */
+    public double getPercentileMs(double percentile) {
+        if (windowCount == 0) {
+            return 0.0;
+        }
+        long target = (long) Math.ceil(percentile * windowCount);
+        long seen = 0;
+        for (int i = 0; i < windowCounts.length; i++) {
+            seen += windowCounts[i];
+            if (seen >= Math.max(target, 1)) {
+                return (i + 1) * bucketWidthMicros / 1000.0;
+            }
+        }
+        return windowCounts.length * bucketWidthMicros / 1000.0;
+    }
+
+    /** Returns the upper edge of the highest non-empty bucket in the current window, in ms. */
+    public double getMaxMs() {
+        for (int i = windowCounts.length - 1; i >= 0; i--) {
+            if (windowCounts[i] > 0) {
+                return (i + 1) * bucketWidthMicros / 1000.0;
+            }
+        }
+        return 0.0;
+    }
+}
@@ -0,0 +1,65 @@
+package frc.robot.common.util;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size array of primitive doubles published by one writer thread and copied out by other threads under a
+ * sequence lock.
+ *
+ * <p>The writer makes the sequence odd, writes the values, then makes it even again. A reader copies the values and
+ * keeps the copy only if the sequence was even and unchanged across it, so it never sees a partial update. Neither side
+ * blocks or allocates.
+ */
+public class SeqLockDoubleArray {
+    private static final int readAttempts = 100;
+
+    private final double[] values;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SeqLockDoubleArray(int length) {
+        values = new double[length];
+    }
+
+    /** Starts an update. Writer only, and must be followed by {@link #endWrite()}. */
+    public void beginWrite() {
+        sequence.set(sequence.get() + 1);
+        VarHandle.storeStoreFence(); // Keep the value writes after the odd sequence
+    }
+
+    /** Sets one value of the update in progress. Writer only. */
+    public void set(int index, double value) {
+        values[index] = value;
+    }
+
+    /** Publishes the update started by {@link #beginWrite()}. Writer only. */
+    public void endWrite() {
+        sequence.set(sequence.get() + 1);
+    }
+
+    /**
+     * Copies the latest complete update into {@code destination}, retrying a bounded number of times while the writer
+     * is mid-update.
+     *
+     * @return False if every attempt overlapped an update, leaving {@code destination} with a partial copy.
+     */
+    public boolean read(double[] destination) {
+        for (int attempt = 0; attempt < readAttempts; attempt++) {
+            long start = sequence.get();
+            if ((start & 1) == 0) {
+                System.arraycopy(values, 0, destination, 0, values.length);
+                VarHandle.loadLoadFence(); // Finish the copy before checking the sequence again
+                if (sequence.get() == start) {
+                    return true;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        return false;
+    }
+
+    /** Returns the number of values. */
+    public int length() {
+        return values.length;
+    }
+}
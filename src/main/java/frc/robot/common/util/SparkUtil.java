@@ -26,41 +26,60 @@ import org.ironmaple.simulation.SimulatedArena;
 
 public class SparkUtil {
     /** Stores whether any error was has been detected by other utility methods. */
-    public static boolean sparkStickyFault = false;
+    public static volatile boolean sparkStickyFault = false;
 
-    /** Processes a value from a Spark only if the value is valid. */
-    public static void ifOk(SparkBase spark, DoubleSupplier supplier, DoubleConsumer consumer) {
+    /** Processes a value from a Spark only if the value is valid. Returns whether it was. */
+    public static boolean ifOk(SparkBase spark, DoubleSupplier supplier, DoubleConsumer consumer) {
         double value = supplier.getAsDouble();
         if (spark.getLastError() == REVLibError.kOk) {
             consumer.accept(value);
+            return true;
         } else {
             sparkStickyFault = true;
+            return false;
         }
     }
 
-    /** Processes a value from a Spark only if the value is valid. */
-    public static void ifOk(SparkBase spark, DoubleSupplier[] suppliers, Consumer<double[]> consumer) {
+    /** Processes a value from a Spark only if the value is valid. Returns whether it was. */
+    public static boolean ifOk(SparkBase spark, DoubleSupplier[] suppliers, Consumer<double[]> consumer) {
         double[] values = new double[suppliers.length];
         for (int i = 0; i < suppliers.length; i++) {
             values[i] = suppliers[i].getAsDouble();
             if (spark.getLastError() != REVLibError.kOk) {
                 sparkStickyFault = true;
-                return;
+                return false;
             }
         }
         consumer.accept(values);
+        return true;
     }
 
-    /** Attempts to run the command until no error is produced. */
-    public static void tryUntilOk(SparkBase spark, int maxAttempts, Supplier<REVLibError> command) {
+    /**
+     * Reads values from a Spark into an array, without allocating. Returns whether every read was valid; if not, the
+     * array holds the values read before the failure.
+     */
+    public static boolean ifOk(SparkBase spark, DoubleSupplier[] suppliers, double[] values) {
+        for (int i = 0; i < suppliers.length; i++) {
+            values[i] = suppliers[i].getAsDouble();
+            if (spark.getLastError() != REVLibError.kOk) {
+                sparkStickyFault = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Attempts to run the command until no error is produced. Returns whether it succeeded. */
+    public static boolean tryUntilOk(SparkBase spark, int maxAttempts, Supplier<REVLibError> command) {
         for (int i = 0; i < maxAttempts; i++) {
             var error = command.get();
             if (error == REVLibError.kOk) {
-                break;
+                return true;
             } else {
                 sparkStickyFault = true;
             }
         }
+        return false;
     }
 
     public static double[] getSimulationOdometryTimeStamps() {
@@ -2,8 +2,12 @@ package frc.robot.games.reefscape2025;
 
 import com.revrobotics.spark.SparkMax;
 import com.revrobotics.spark.SparkLowLevel.MotorType;
+import com.revrobotics.spark.config.SparkMaxConfig;
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.common.util.CanBusManager;
+import frc.robot.common.util.DeviceConfigService;
+import java.util.Map;
 
 public class CoralOutputSubsystem extends SubsystemBase {
     // Assuming ElevatorConstants is defined elsewhere; add shooter channel
@@ -21,6 +25,14 @@ public class CoralOutputSubsystem extends SubsystemBase {
 
     public CoralOutputSubsystem() {
         shooterMotor = new SparkMax(ElevatorConstants.shooter_spark_channel, MotorType.kBrushless);
+
+        // The shooter is run open loop and never read
+        SparkMaxConfig shooterConfig = new SparkMaxConfig();
+        CanBusManager.getInstance().budgetSpark("Shooter/Spark11", shooterConfig, Map.of(), 50.0);
+        DeviceConfigService.getInstance().submit(
+            "Shooter",
+            () -> DeviceConfigService.getInstance().applySpark(
+                "Shooter/Spark11", shooterMotor, shooterConfig));
         funnelLazer = new DigitalInput(0);
         shooterLazer = new DigitalInput(1);
         exitLazer = new DigitalInput(2);
@@ -2,8 +2,12 @@ package frc.robot.games.reefscape2025; // Matches your current setup
 
 import com.revrobotics.spark.SparkMax; // 2025 package
 import com.revrobotics.spark.SparkLowLevel.MotorType;
+import com.revrobotics.spark.config.SparkMaxConfig;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.common.subsystems.stringcoder.StringCoderReader;
+import frc.robot.common.util.CanBusManager;
+import frc.robot.common.util.DeviceConfigService;
+import java.util.Map;
 
 public class ElevatorSubsystem extends SubsystemBase {
     public static class ElevatorConstants {
@@ -26,6 +30,16 @@ public class ElevatorSubsystem extends SubsystemBase {
         elevator_spark_nine = new SparkMax(ElevatorConstants.spark_channel_nine, MotorType.kBrushless);
         elevator_spark_ten = new SparkMax(ElevatorConstants.spark_channel_ten, MotorType.kBrushless);
 
+        // Height comes from the string coder, so neither Spark's status signals are read
+        SparkMaxConfig nineConfig = new SparkMaxConfig();
+        CanBusManager.getInstance().budgetSpark("Elevator/Spark9", nineConfig, Map.of(), 50.0);
+        SparkMaxConfig tenConfig = new SparkMaxConfig();
+        CanBusManager.getInstance().budgetSpark("Elevator/Spark10", tenConfig, Map.of(), 50.0);
+        DeviceConfigService.getInstance().submit("Elevator", () -> {
+            DeviceConfigService.getInstance().applySpark("Elevator/Spark9", elevator_spark_nine, nineConfig);
+            DeviceConfigService.getInstance().applySpark("Elevator/Spark10", elevator_spark_ten, tenConfig);
+        });
+
         coder = new StringCoderReader(ElevatorConstants.coder_port, ElevatorConstants.voltage_to_distance_factor);
         elevator_speed = ElevatorConstants.elevator_speed;
         error = ElevatorConstants.error;
@@ -2,9 +2,14 @@ package frc.robot.games.reefscape2025;
 
 import com.revrobotics.spark.SparkMax;
 import com.revrobotics.spark.SparkLowLevel.MotorType;
+import com.revrobotics.spark.config.SparkMaxConfig;
 import com.revrobotics.RelativeEncoder;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.common.subsystems.stringcoder.EncoderPositionReader;
+import frc.robot.common.util.CanBusManager;
+import frc.robot.common.util.DeviceConfigService;
+import frc.robot.common.util.CanBusManager.SparkSignal;
+import java.util.Map;
 
 /**
  * ElevatorSubsystem with encoder-based position feedback.
@@ -35,6 +40,17 @@ public class ElevatorSubsystemWithEncoder extends SubsystemBase {
         elevator_spark_nine = new SparkMax(ElevatorConstants.spark_channel_nine, MotorType.kBrushless);
         elevator_spark_ten = new SparkMax(ElevatorConstants.spark_channel_ten, MotorType.kBrushless);
 
+        // Only motor 9's encoder is read; motor 10 just needs its keep-alive frames
+        SparkMaxConfig nineConfig = new SparkMaxConfig();
+        CanBusManager.getInstance().budgetSpark(
+            "Elevator/Spark9", nineConfig, Map.of(SparkSignal.PRIMARY_ENCODER_POSITION, 50.0), 50.0);
+        SparkMaxConfig tenConfig = new SparkMaxConfig();
+        CanBusManager.getInstance().budgetSpark("Elevator/Spark10", tenConfig, Map.of(), 50.0);
+        DeviceConfigService.getInstance().submit("Elevator", () -> {
+            DeviceConfigService.getInstance().applySpark("Elevator/Spark9", elevator_spark_nine, nineConfig);
+            DeviceConfigService.getInstance().applySpark("Elevator/Spark10", elevator_spark_ten, tenConfig);
+        });
+
         // Get the encoder from the first motor and create position reader
         RelativeEncoder encoder = elevator_spark_nine.getEncoder();
         positionReader = new EncoderPositionReader(
@@ -16,9 +16,95 @@ import com.pathplanner.lib.config.ModuleConfig;
 import com.pathplanner.lib.config.RobotConfig;
 
 public class DriveConstants {
+    // Odometry sample rates; HIGH matches a 5 ms Spark position status frame
+    public enum OdometryRate {
+        STANDARD(100.0),
+        HIGH(200.0);
+
+        public final double hz;
+
+        OdometryRate(double hz) {
+            this.hz = hz;
+        }
+    }
+
+    // What the odometry thread does with a new sample when a queue is full
+    public enum OdometryOverflowPolicy {
+        /** Discard the new sample. */
+        DROP_NEWEST,
+        /** Discard the oldest queued sample. */
+        OVERWRITE_OLDEST,
+        /** Fold the new sample into the newest queued one, keeping the accumulated motion. */
+        COALESCE
+    }
+
+    // How the odometry thread is scheduled
+    public enum OdometrySamplerMode {
+        /** WPILib Notifier, sharing the HAL notifier with the main loop. */
+        NOTIFIER,
+        /** Dedicated real-time thread with a hybrid sleep/spin wait on FPGA time. */
+        REALTIME_THREAD
+    }
+
+    // Where odometry samples are folded into the pose estimator
+    public enum PoseEstimationMode {
+        /** In a batch from Drive.periodic. */
+        MAIN_LOOP,
+        /** On the odometry thread as each sample arrives, publishing an atomic pose. Real robot only. */
+        ODOMETRY_THREAD
+    }
+
+    // How the turn Spark tracks module angle setpoints
+    public enum SteeringMode {
+        /** Plain position control with wrapping. */
+        POSITION,
+        /** MAXMotion motion-profiled position control toward the nearest equivalent angle, with a steering rate feedforward. */
+        MAX_MOTION
+    }
+
     // Physical robot dimensions and capabilities
     public static final double maxSpeedMetersPerSec = 4.8;
-    public static final double odometryFrequency = 100.0; // Hz
+    public static final OdometryRate odometryRate = OdometryRate.STANDARD;
+    public static final double odometryFrequency = odometryRate.hz; // Hz
+    public static final double gyroOdometryFrequency = 200.0; // Hz, sampled separately from the modules; NavX supports up to 200
+    public static final double odometryQueueSeconds = 0.2; // Queue capacity, in seconds of samples at each rate
+    public static final OdometryOverflowPolicy odometryOverflowPolicy = OdometryOverflowPolicy.COALESCE;
+    public static final OdometrySamplerMode odometrySamplerMode = OdometrySamplerMode.NOTIFIER;
+    public static final int odometryThreadPriority = 50; // Real-time priority, REALTIME_THREAD only
+    public static final long odometrySpinThresholdMicros = 200; // Spin instead of sleeping for the last part of a period
+    public static final double poseHistorySeconds = 1.5; // Pose and velocity history kept for latency compensation
+    public static final PoseEstimationMode poseEstimationMode = PoseEstimationMode.MAIN_LOOP;
+    public static final boolean poseEstimatorBenchmark = false; // Also run WPILib's estimator and log the comparison
+    public static final boolean setpointGeneratorEnabled = false; // Limit module acceleration and steering rate
+    public static final double maxModuleAccelMetersPerSecSq = 10.0;
+    public static final double maxModuleSteerRateRadPerSec = 20.0; // Below the ~27 rad/s free speed of the steer NEO
+    public static final boolean driveControlThreadEnabled = false; // Run the setpoint path on its own thread
+    public static final double driveControlFrequency = 200.0; // Hz
+    public static final double driveTargetTimeoutSeconds = 0.1; // Stop if commands stop updating the target
+    public static final double headingHoldKp = 2.0; // rad/s per rad, drive control thread only; 0 disables
+    public static final boolean slipDetectionEnabled = false; // Replace slipping modules' deltas; off until validated
+    public static final double slipThresholdMetersPerSec = 0.5; // Module speed error from the rigid-body prediction
+    public static final double headingKinematicWeight = 0.02; // Pull of kinematic yaw increments against the gyro
+    public static final double gyroBiasFilterGain = 0.02; // Per stationary sample
+    public static final double stationarySpeedMetersPerSec = 0.02; // Wheel speed below which gyro bias is learned
+    public static final double gyroDriftAlertRadPerSec = 0.01;
+    public static final boolean parallelIoReads = false; // Read devices concurrently; off until measured
+    public static final int ioReadThreads = 4;
+    public static final double[] odometryStdDevs = new double[] {0.1, 0.1, 0.1}; // Meters, meters, radians
+    public static final double collisionAccelThresholdGs = 1.5; // Horizontal acceleration treated as an impact
+    public static final double tiltThresholdRad = Units.degreesToRadians(8.0);
+    public static final double collisionRecoverySeconds = 1.0; // Odometry distrusted for this long after an event
+    public static final double collisionStdDevScale = 10.0; // Odometry std dev multiplier while recovering
+    public static final boolean turnReseedEnabled = false; // Re-seed turn encoders mid-match; off until validated
+    public static final double turnReseedThresholdRad = Units.degreesToRadians(1.5);
+    public static final double turnReseedMaxVelocityRadPerSec = 0.2; // Only re-seed while the module is nearly still
+    public static final int turnReseedCycles = 10; // Cycles the drift must persist before it is corrected
+    public static final double turnReseedMaxStepRad = Units.degreesToRadians(2.0); // Largest correction per re-seed
+    public static final SteeringMode steeringMode = SteeringMode.POSITION;
+    public static final double turnMaxAccelRadPerSecSq = 200.0; // MAXMotion profile; velocity uses maxModuleSteerRateRadPerSec
+    public static final double turnAllowedErrorRad = Units.degreesToRadians(1.0); // MAXMotion allowed profile error
+    public static final double steeringStepThresholdRad = Units.degreesToRadians(15.0); // Setpoint jump measured as a step
+    public static final double steeringSettleToleranceRad = Units.degreesToRadians(2.0);
     public static final double trackWidth = Units.inchesToMeters(23.50);
     public static final double wheelBase = Units.inchesToMeters(23.50);
     public static final double driveBaseRadius = Math.hypot(trackWidth / 2.0, wheelBase / 2.0);
@@ -89,7 +175,7 @@ public class DriveConstants {
     // Turn encoder configuration
     public static final boolean turnEncoderInverted = false;
     public static final double turnEncoderPositionFactor = (2 * Math.PI) / turnMotorReduction; // Sensor rotations -> radians
-    public static final double turnEncoderVelocityFactor = (2 * Math.PI) / 60.0; // Sensor RPM -> rad/sec
+    public static final double turnEncoderVelocityFactor = (2 * Math.PI) / (60.0 * turnMotorReduction); // Sensor RPM -> module rad/sec
 
     // PathPlanner configuration
     public static final double robotMassKg = 74.088; // Robot mass in kilograms
@@ -102,6 +188,7 @@ public class DriveConstants {
     public static final double turnKp = 0.30;  // Proportional gain
     public static final double turnKi = 0.001; // Small integral to address minor steady-state errors
     public static final double turnKd = 0.00;  // Derivative to dampen oscillations    
+    public static final double turnKv = 0.43; // Volts per module rad/s; NEO free speed through the steering reduction
     public static final double turnSimP = 2.00;
     public static final double turnSimD = 0.001;
     public static final double turnPIDMinInput = 0; // Radians
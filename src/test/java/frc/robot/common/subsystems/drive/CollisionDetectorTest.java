@@ -0,0 +1,59 @@
+package frc.robot.common.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CollisionDetectorTest {
+    private final CollisionDetector detector = new CollisionDetector(1.0, 0.2, 0.5);
+
+    @Test
+    void impactStartsRecoveryWindow() {
+        assertEquals(CollisionDetector.Event.NONE, detector.update(1.0, 0.3, 0.3, 0.0, 0.0));
+        assertFalse(detector.isRecovering(1.0));
+
+        assertEquals(CollisionDetector.Event.COLLISION, detector.update(2.0, 0.8, 0.8, 0.0, 0.0));
+        assertEquals(CollisionDetector.Event.NONE, detector.update(2.02, 0.0, 0.0, 0.0, 0.0));
+        assertTrue(detector.isRecovering(2.02));
+        assertTrue(detector.isRecovering(2.49));
+        assertFalse(detector.isRecovering(2.5));
+        assertEquals(1, detector.getCollisionCount());
+        assertEquals(CollisionDetector.Event.COLLISION, detector.getLastEvent());
+    }
+
+    @Test
+    void sustainedImpactIsOneEventAndExtendsRecovery() {
+        for (int i = 0; i < 10; i++) {
+            detector.update(1.0 + i * 0.1, 2.0, 0.0, 0.0, 0.0);
+        }
+        assertEquals(1, detector.getCollisionCount());
+
+        // The window runs from the last reading over the threshold
+        assertTrue(detector.isRecovering(2.3));
+        assertFalse(detector.isRecovering(2.4));
+    }
+
+    @Test
+    void tiltStartsRecoveryWindow() {
+        assertEquals(CollisionDetector.Event.TILT, detector.update(1.0, 0.0, 0.0, 0.0, -0.3));
+        assertEquals(CollisionDetector.Event.NONE, detector.update(1.1, 0.0, 0.0, 0.25, 0.0));
+        assertEquals(CollisionDetector.Event.NONE, detector.update(1.2, 0.0, 0.0, 0.0, 0.0));
+        assertTrue(detector.isRecovering(1.59));
+        assertFalse(detector.isRecovering(1.6));
+        assertEquals(1, detector.getTiltCount());
+        assertEquals(0, detector.getCollisionCount());
+
+        // A new tilt after levelling out counts again
+        assertEquals(CollisionDetector.Event.TILT, detector.update(2.0, 0.0, 0.0, 0.3, 0.0));
+        assertEquals(2, detector.getTiltCount());
+    }
+
+    @Test
+    void collisionTakesPrecedenceOverTilt() {
+        assertEquals(CollisionDetector.Event.COLLISION, detector.update(1.0, 1.5, 0.0, 0.3, 0.0));
+        assertEquals(1, detector.getCollisionCount());
+        assertEquals(0, detector.getTiltCount());
+    }
+}
@@ -0,0 +1,106 @@
+package frc.robot.common.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import org.junit.jupiter.api.Test;
+
+class HeadingFusionTest {
+    private static final Translation2d[] moduleTranslations = new Translation2d[] {
+        new Translation2d(0.3, 0.3),
+        new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3),
+        new Translation2d(-0.3, -0.3)
+    };
+    private static final double dt = 0.02;
+
+    private final HeadingFusion fusion = new HeadingFusion(moduleTranslations, 0.1, 0.05, 0.01);
+    private final SwerveModulePosition[] deltas = new SwerveModulePosition[4];
+
+    HeadingFusionTest() {
+        for (int i = 0; i < 4; i++) {
+            deltas[i] = new SwerveModulePosition();
+        }
+    }
+
+    /** Sets the module deltas for one sample of pure rotation at the given rate. */
+    private void setRotation(double omegaRadPerSec) {
+        for (int i = 0; i < 4; i++) {
+            double moduleVx = -omegaRadPerSec * moduleTranslations[i].getY();
+            double moduleVy = omegaRadPerSec * moduleTranslations[i].getX();
+            deltas[i].distanceMeters = Math.hypot(moduleVx, moduleVy) * dt;
+            deltas[i].angle = new Rotation2d(moduleVx, moduleVy);
+        }
+    }
+
+    @Test
+    void learnsGyroBiasWhileStationary() {
+        double biasRadPerSec = 0.01;
+        setRotation(0.0);
+        double gyroYaw = 0.0;
+        for (int sample = 0; sample < 500; sample++) {
+            gyroYaw += biasRadPerSec * dt;
+            fusion.update(gyroYaw, deltas, dt);
+        }
+        assertEquals(biasRadPerSec, fusion.getGyroBiasRadPerSec(), 1e-6);
+
+        // Once learned, the drifting gyro no longer turns the heading
+        double heading = fusion.getHeadingRad();
+        for (int sample = 0; sample < 100; sample++) {
+            gyroYaw += biasRadPerSec * dt;
+            fusion.update(gyroYaw, deltas, dt);
+        }
+        assertEquals(heading, fusion.getHeadingRad(), 1e-6);
+    }
+
+    @Test
+    void doesNotLearnBiasWhileMoving() {
+        double omega = 1.0;
+        setRotation(omega);
+        double gyroYaw = 0.0;
+        for (int sample = 0; sample < 100; sample++) {
+            gyroYaw += omega * dt;
+            fusion.update(gyroYaw, deltas, dt);
+        }
+        assertEquals(0.0, fusion.getGyroBiasRadPerSec());
+        assertEquals(omega * 100 * dt, fusion.getHeadingRad(), 1e-9);
+    }
+
+    @Test
+    void continuesOnKinematicsWhenGyroDisconnects() {
+        double omega = 1.0;
+        setRotation(omega);
+        double gyroYaw = 0.0;
+        for (int sample = 0; sample < 50; sample++) {
+            gyroYaw += omega * dt;
+            fusion.update(gyroYaw, deltas, dt);
+        }
+        double headingAtDisconnect = fusion.getHeadingRad();
+
+        // Disconnected: the heading keeps turning at the kinematic rate without a jump
+        for (int sample = 1; sample <= 50; sample++) {
+            double heading = fusion.update(Double.NaN, deltas, dt);
+            assertEquals(headingAtDisconnect + omega * sample * dt, heading, 1e-9);
+            assertTrue(Double.isNaN(fusion.getLastGyroDeltaRad()));
+        }
+
+        // Reconnected at a different raw yaw: no jump, the first sample only re-seeds the gyro
+        double heading = fusion.getHeadingRad();
+        double reconnectedYaw = 2.5;
+        assertEquals(heading + omega * dt, fusion.update(reconnectedYaw, deltas, dt), 1e-9);
+        assertEquals(heading + 2 * omega * dt, fusion.update(reconnectedYaw + omega * dt, deltas, dt), 1e-9);
+    }
+
+    @Test
+    void blendsGyroAndKinematicIncrements() {
+        // Wheels report twice the gyro's rotation; the fused increment moves 10% of the way toward them
+        setRotation(2.0);
+        fusion.update(0.0, deltas, dt);
+        double start = fusion.getHeadingRad();
+        fusion.update(dt, deltas, dt);
+        assertEquals(start + dt + 0.1 * (2.0 * dt - dt), fusion.getHeadingRad(), 1e-9);
+    }
+}
@@ -0,0 +1,172 @@
+package frc.robot.common.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.common.util.AllocationMonitor;
+import org.junit.jupiter.api.Test;
+
+class OdometryIntegratorTest {
+    private static final Translation2d[] moduleTranslations = new Translation2d[] {
+        new Translation2d(0.3, 0.3),
+        new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3),
+        new Translation2d(-0.3, -0.3)
+    };
+    private static final double samplePeriod = 0.004;
+    private static final int samplesPerCycle = 5;
+
+    private final SwerveModulePosition[] positions = new SwerveModulePosition[] {
+        new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition()
+    };
+    private final SwervePoseEstimator poseEstimator =
+            new SwervePoseEstimator(moduleTranslations, new Rotation2d(), positions, new Pose2d(), 400);
+    private final OdometryIntegrator integrator = new OdometryIntegrator(
+            poseEstimator,
+            moduleTranslations,
+            positions,
+            new HeadingFusion(moduleTranslations, 0.0, 0.0, 0.01),
+            new SlipDetector(moduleTranslations, 0.5),
+            true);
+
+    // Gyro samples for one cycle, interleaved with the module samples
+    private final double[] gyroTimestamps = new double[samplesPerCycle];
+    private final Rotation2d[] gyroYaws = new Rotation2d[samplesPerCycle];
+
+    /** Drives straight ahead at the given speed for one cycle, with a stationary gyro. */
+    private void runCycle(int cycle, double speedMetersPerSec) {
+        double cycleStart = cycle * samplesPerCycle * samplePeriod;
+        for (int i = 0; i < samplesPerCycle; i++) {
+            gyroTimestamps[i] = cycleStart + (i + 0.5) * samplePeriod;
+        }
+        integrator.setGyroSamples(true, gyroTimestamps, gyroYaws, 0.0);
+        for (int i = 0; i < samplesPerCycle; i++) {
+            for (SwerveModulePosition position : positions) {
+                position.distanceMeters += speedMetersPerSec * samplePeriod;
+            }
+            integrator.update(cycleStart + i * samplePeriod, positions);
+        }
+        integrator.finishCycle();
+    }
+
+    @Test
+    void integratesStraightDrive() {
+        for (int i = 0; i < samplesPerCycle; i++) {
+            gyroYaws[i] = new Rotation2d();
+        }
+        for (int cycle = 0; cycle < 50; cycle++) {
+            runCycle(cycle, 2.0);
+        }
+        Pose2d pose = poseEstimator.getEstimatedPosition();
+        assertEquals(2.0 * 50 * samplesPerCycle * samplePeriod, pose.getX(), 1e-9);
+        assertEquals(0.0, pose.getY(), 1e-9);
+        assertEquals(0.0, pose.getRotation().getRadians(), 1e-9);
+    }
+
+    @Test
+    void interpolatesGyroBetweenSamples() {
+        // Gyro samples at 0 and 1 rad, module sample halfway between
+        integrator.setGyroSamples(
+                true, new double[] {0.0, 0.1}, new Rotation2d[] {new Rotation2d(), new Rotation2d(1.0)}, 0.0);
+        integrator.update(0.0, positions);
+        integrator.update(0.05, positions);
+        assertEquals(0.5, integrator.getHeadingRad(), 1e-9);
+        integrator.finishCycle();
+
+        // Holds the newest sample into the next cycle until a new one arrives
+        integrator.setGyroSamples(true, new double[] {0.2}, new Rotation2d[] {new Rotation2d(2.0)}, 2.0);
+        integrator.update(0.15, positions);
+        assertEquals(1.5, integrator.getHeadingRad(), 1e-9);
+    }
+
+    @Test
+    void integrationDoesNotAllocate() {
+        assumeTrue(AllocationMonitor.isSupported());
+        for (int i = 0; i < samplesPerCycle; i++) {
+            gyroYaws[i] = new Rotation2d(0.001 * i);
+        }
+
+        // Warm up past the history capacity so the ring buffers have wrapped
+        int cycle = 0;
+        for (; cycle < 200; cycle++) {
+            runCycle(cycle, 1.0);
+        }
+
+        AllocationMonitor monitor = new AllocationMonitor();
+        monitor.start();
+        for (; cycle < 400; cycle++) {
+            runCycle(cycle, 1.0);
+        }
+        assertEquals(0, monitor.stop());
+    }
+
+    /** Makes an integrator with its own estimator, starting from zero module positions. */
+    private static OdometryIntegrator makeIntegrator(SwervePoseEstimator estimator) {
+        SwerveModulePosition[] initial = new SwerveModulePosition[] {
+            new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition()
+        };
+        return new OdometryIntegrator(
+                estimator,
+                moduleTranslations,
+                initial,
+                new HeadingFusion(moduleTranslations, 0.1, 0.0, 0.01),
+                new SlipDetector(moduleTranslations, 0.5),
+                true);
+    }
+
+    @Test
+    void rawAnglesMatchModulePositions() {
+        SwervePoseEstimator rawEstimator =
+                new SwervePoseEstimator(moduleTranslations, new Rotation2d(), positions, new Pose2d(), 400);
+        OdometryIntegrator positionIntegrator = makeIntegrator(poseEstimator);
+        OdometryIntegrator rawIntegrator = makeIntegrator(rawEstimator);
+        double[] distances = new double[4];
+        double[] anglesRad = new double[4];
+
+        // Driving an arc, with the last module slipping partway through
+        for (int sample = 0; sample < 200; sample++) {
+            for (int i = 0; i < 4; i++) {
+                anglesRad[i] = 0.3 + 0.002 * sample + 0.1 * i;
+                distances[i] += (sample > 100 && i == 3 ? 3.0 : 1.0) * samplePeriod;
+                positions[i].distanceMeters = distances[i];
+                positions[i].angle = Rotation2d.fromRadians(anglesRad[i]);
+            }
+            double timestamp = sample * samplePeriod;
+            double gyroYawRad = 0.5 * timestamp;
+            positionIntegrator.update(timestamp, positions, gyroYawRad);
+            rawIntegrator.update(timestamp, distances, anglesRad, gyroYawRad);
+        }
+
+        Pose2d expected = poseEstimator.getEstimatedPosition();
+        Pose2d actual = rawEstimator.getEstimatedPosition();
+        assertEquals(expected.getX(), actual.getX(), 1e-12);
+        assertEquals(expected.getY(), actual.getY(), 1e-12);
+        assertEquals(expected.getRotation().getRadians(), actual.getRotation().getRadians(), 1e-12);
+        assertEquals(positionIntegrator.getHeadingRad(), rawIntegrator.getHeadingRad(), 1e-12);
+    }
+
+    @Test
+    void rawAngleIntegrationDoesNotAllocate() {
+        assumeTrue(AllocationMonitor.isSupported());
+        double[] distances = new double[4];
+        double[] anglesRad = new double[4];
+
+        // Warm up past the history capacity so the ring buffers have wrapped
+        AllocationMonitor monitor = new AllocationMonitor();
+        for (int sample = 0; sample < 2000; sample++) {
+            if (sample == 1000) {
+                monitor.start();
+            }
+            for (int i = 0; i < 4; i++) {
+                anglesRad[i] = 0.001 * sample;
+                distances[i] += samplePeriod;
+            }
+            integrator.update(sample * samplePeriod, distances, anglesRad, 0.0005 * sample);
+        }
+        assertEquals(0, monitor.stop());
+    }
+}
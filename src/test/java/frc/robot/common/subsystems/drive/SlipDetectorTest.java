@@ -0,0 +1,113 @@
+package frc.robot.common.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import org.junit.jupiter.api.Test;
+
+class SlipDetectorTest {
+    private static final Translation2d[] moduleTranslations = new Translation2d[] {
+        new Translation2d(0.3, 0.3),
+        new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3),
+        new Translation2d(-0.3, -0.3)
+    };
+    private static final double dt = 0.02;
+
+    // Rigid-body chassis motion, robot-relative
+    private static final double vx = 1.0;
+    private static final double vy = 0.5;
+    private static final double omega = 0.8;
+
+    private final SlipDetector detector = new SlipDetector(moduleTranslations, 0.5);
+    private final SwerveModulePosition[] measured = new SwerveModulePosition[4];
+    private final SwerveModulePosition[] corrected = new SwerveModulePosition[4];
+    private final double[] trueDistances = new double[4];
+
+    SlipDetectorTest() {
+        for (int i = 0; i < 4; i++) {
+            double moduleVx = vx - omega * moduleTranslations[i].getY();
+            double moduleVy = vy + omega * moduleTranslations[i].getX();
+            measured[i] = new SwerveModulePosition(0.0, new Rotation2d(moduleVx, moduleVy));
+            corrected[i] = new SwerveModulePosition();
+        }
+    }
+
+    private static double moduleSpeed(int module) {
+        Translation2d translation = moduleTranslations[module];
+        return Math.hypot(vx - omega * translation.getY(), vy + omega * translation.getX());
+    }
+
+    /** Advances one sample of rigid motion, with the given modules' wheels spinning at the slip factor. */
+    private int step(int slippingMask, double slipFactor, double gyroDeltaRad) {
+        for (int i = 0; i < 4; i++) {
+            double distance = moduleSpeed(i) * dt;
+            trueDistances[i] += distance;
+            measured[i].distanceMeters += (slippingMask & (1 << i)) != 0 ? distance * slipFactor : distance;
+        }
+        return detector.correct(measured, gyroDeltaRad, dt, corrected);
+    }
+
+    @Test
+    void rigidMotionIsNotCorrected() {
+        step(0, 1.0, omega * dt); // The first sample only initializes
+        for (int sample = 0; sample < 50; sample++) {
+            assertEquals(0, step(0, 1.0, omega * dt));
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(measured[i].distanceMeters, corrected[i].distanceMeters, 1e-9);
+            assertEquals(0, detector.getSlipCounts()[i]);
+        }
+    }
+
+    @Test
+    void oneSlippingModuleFollowsTheOthers() {
+        step(0, 1.0, omega * dt);
+        for (int sample = 0; sample < 50; sample++) {
+            assertEquals(1 << 2, step(1 << 2, 3.0, omega * dt));
+        }
+
+        // The slipping wheel is replaced by rigid motion, and the others are untouched
+        assertEquals(trueDistances[2], corrected[2].distanceMeters, 1e-9);
+        for (int i : new int[] {0, 1, 3}) {
+            assertEquals(measured[i].distanceMeters, corrected[i].distanceMeters, 1e-9);
+            assertEquals(trueDistances[i], corrected[i].distanceMeters, 1e-9);
+            assertEquals(0, detector.getSlipCounts()[i]);
+        }
+        assertEquals(50, detector.getSlipCounts()[2]);
+        assertEquals(1 << 2, detector.getLastSlipMask());
+    }
+
+    @Test
+    void slipBelowThresholdIsIgnored() {
+        step(0, 1.0, omega * dt);
+        assertEquals(0, step(1 << 1, 1.01, omega * dt));
+    }
+
+    @Test
+    void noMajorityLeavesPositionsUncorrected() {
+        step(0, 1.0, omega * dt);
+        assertEquals(0, step((1 << 0) | (1 << 1), 3.0, omega * dt));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(measured[i].distanceMeters, corrected[i].distanceMeters, 1e-9);
+        }
+    }
+
+    @Test
+    void missingGyroSkipsDetection() {
+        step(0, 1.0, omega * dt);
+        assertEquals(0, step(1 << 2, 3.0, Double.NaN));
+        assertEquals(measured[2].distanceMeters, corrected[2].distanceMeters, 1e-9);
+    }
+
+    @Test
+    void clearOffsetsRestoresMeasuredPositions() {
+        step(0, 1.0, omega * dt);
+        step(1 << 2, 3.0, omega * dt);
+        detector.clearOffsets();
+        step(0, 1.0, omega * dt);
+        assertEquals(measured[2].distanceMeters, corrected[2].distanceMeters, 1e-9);
+    }
+}
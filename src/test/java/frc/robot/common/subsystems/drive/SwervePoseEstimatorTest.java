@@ -0,0 +1,225 @@
+package frc.robot.common.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SwervePoseEstimatorTest {
+    private static final Translation2d[] moduleTranslations = new Translation2d[] {
+        new Translation2d(0.3, 0.3),
+        new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3),
+        new Translation2d(-0.3, -0.3)
+    };
+    private static final double samplePeriod = 0.02;
+
+    private final SwerveModulePosition[] positions = new SwerveModulePosition[] {
+        new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition()
+    };
+
+    private SwervePoseEstimator makeEstimator() {
+        return new SwervePoseEstimator(moduleTranslations, new Rotation2d(), positions, new Pose2d(), 100);
+    }
+
+    /** Drives straight ahead at 1 m/s for the given number of samples, starting after the given sample. */
+    private void driveStraight(SwervePoseEstimator estimator, int firstSample, int sampleCount) {
+        for (int i = firstSample; i < firstSample + sampleCount; i++) {
+            for (SwerveModulePosition position : positions) {
+                position.distanceMeters += samplePeriod;
+            }
+            estimator.updateWithTime((i + 1) * samplePeriod, 0.0, positions);
+        }
+    }
+
+    @Test
+    void sampleAtFollowsVisionMeasurement() {
+        SwervePoseEstimator estimator = makeEstimator();
+        driveStraight(estimator, 0, 50); // x = 1.0 at t = 1.0
+        Pose2d before = estimator.sampleAt(0.5).orElseThrow();
+        assertEquals(0.5, before.getX(), 1e-9);
+
+        // A measurement at t = 0.5 pulls the pose there and every pose after it toward the measurement
+        estimator.addVisionMeasurement(new Pose2d(0.5, 1.0, new Rotation2d()), 0.5);
+        Pose2d atMeasurement = estimator.sampleAt(0.5).orElseThrow();
+        Pose2d later = estimator.sampleAt(0.8).orElseThrow();
+        assertTrue(atMeasurement.getY() > 0.1);
+        assertEquals(atMeasurement.getY(), later.getY(), 1e-9);
+        assertEquals(atMeasurement.getX() + 0.3, later.getX(), 1e-9);
+        assertEquals(later.getY(), estimator.sampleAt(1.0).orElseThrow().getY(), 1e-9);
+        assertEquals(estimator.getEstimatedPosition().getY(), later.getY(), 1e-9);
+
+        // Poses before the measurement are unchanged
+        assertEquals(0.0, estimator.sampleAt(0.4).orElseThrow().getY(), 1e-9);
+    }
+
+    @Test
+    void sampleAtIsEmptyWithoutHistory() {
+        SwervePoseEstimator estimator = makeEstimator();
+        assertTrue(estimator.sampleAt(0.0).isEmpty());
+        assertTrue(Double.isNaN(estimator.getOldestSampleTimestamp()));
+
+        driveStraight(estimator, 0, 150); // 3 s, trimmed to samples newer than 1.5 s before the last
+        assertEquals(1.52, estimator.getOldestSampleTimestamp(), 1e-9);
+    }
+
+    /** Inputs for one drive, recorded at 250 Hz: module positions and gyro yaw per sample, and vision measurements. */
+    private static final class Recording {
+        static final double period = 0.004;
+        static final int sampleCount = 1500;
+        static final int visionInterval = 25;
+
+        final SwerveModulePosition[][] positions = new SwerveModulePosition[sampleCount][];
+        final double[] gyroYawRad = new double[sampleCount];
+        final Pose2d[] visionPoses = new Pose2d[sampleCount / visionInterval];
+        final double[] visionTimestamps = new double[visionPoses.length];
+        final double[][] visionStdDevs = new double[visionPoses.length][];
+
+        Recording(long seed) {
+            // Drive a curving path with the modules following rigid-body motion, plus wheel and gyro noise
+            Random random = new Random(seed);
+            double[] distances = new double[4];
+            double x = 0.0;
+            double y = 0.0;
+            double heading = 0.0;
+            for (int i = 0; i < sampleCount; i++) {
+                double t = i * period;
+                double vx = 1.5 * Math.cos(0.5 * t);
+                double vy = 0.8 * Math.sin(0.7 * t);
+                double omega = 1.2 * Math.sin(0.4 * t);
+                positions[i] = new SwerveModulePosition[4];
+                for (int m = 0; m < 4; m++) {
+                    double moduleVx = vx - omega * moduleTranslations[m].getY();
+                    double moduleVy = vy + omega * moduleTranslations[m].getX();
+                    distances[m] += Math.hypot(moduleVx, moduleVy) * period * (1.0 + 0.02 * random.nextGaussian());
+                    positions[i][m] = new SwerveModulePosition(distances[m], new Rotation2d(moduleVx, moduleVy));
+                }
+                double cos = Math.cos(heading);
+                double sin = Math.sin(heading);
+                x += (vx * cos - vy * sin) * period;
+                y += (vx * sin + vy * cos) * period;
+                heading += omega * period;
+                gyroYawRad[i] = heading + 0.001 * random.nextGaussian();
+
+                // Vision arrives with 40 to 80 ms of latency, offset from the odometry samples
+                if (i % visionInterval == visionInterval - 1) {
+                    int v = i / visionInterval;
+                    visionTimestamps[v] = t - 0.04 - 0.04 * random.nextDouble() + 0.001;
+                    visionPoses[v] = new Pose2d(
+                            x + 0.2 + 0.05 * random.nextGaussian(),
+                            y - 0.1 + 0.05 * random.nextGaussian(),
+                            new Rotation2d(heading + 0.02 * random.nextGaussian()));
+                    double stdDev = 0.3 + random.nextDouble();
+                    visionStdDevs[v] = new double[] {stdDev, stdDev, 2.0 * stdDev};
+                }
+            }
+        }
+    }
+
+    private static void assertPoseEquals(Pose2d expected, Pose2d actual) {
+        assertEquals(expected.getX(), actual.getX(), 1e-6);
+        assertEquals(expected.getY(), actual.getY(), 1e-6);
+        double angleError = expected.getRotation().getRadians() - actual.getRotation().getRadians();
+        assertEquals(0.0, MathUtil.angleModulus(angleError), 1e-6);
+    }
+
+    @Test
+    void matchesWpilibEstimatorOnRecordedInputs() {
+        Recording recording = new Recording(6328);
+        SwerveModulePosition[] initial = recording.positions[0];
+        Pose2d initialPose = new Pose2d(1.0, 2.0, new Rotation2d(0.5));
+        SwervePoseEstimator estimator = new SwervePoseEstimator(
+                moduleTranslations,
+                new Rotation2d(recording.gyroYawRad[0]),
+                initial,
+                initialPose,
+                (int) Math.ceil(SwervePoseEstimator.historySeconds / Recording.period) + 1,
+                new double[] {0.05, 0.05, 0.02},
+                new double[] {0.9, 0.9, 0.9});
+        SwerveDrivePoseEstimator wpilib = new SwerveDrivePoseEstimator(
+                new SwerveDriveKinematics(moduleTranslations),
+                new Rotation2d(recording.gyroYawRad[0]),
+                initial,
+                initialPose,
+                VecBuilder.fill(0.05, 0.05, 0.02),
+                VecBuilder.fill(0.9, 0.9, 0.9));
+
+        for (int i = 1; i < Recording.sampleCount; i++) {
+            double timestamp = i * Recording.period;
+            Rotation2d gyroAngle = new Rotation2d(recording.gyroYawRad[i]);
+            assertPoseEquals(
+                    wpilib.updateWithTime(timestamp, gyroAngle, recording.positions[i]),
+                    estimator.updateWithTime(timestamp, gyroAngle, recording.positions[i]));
+
+            if (i % Recording.visionInterval == Recording.visionInterval - 1) {
+                int v = i / Recording.visionInterval;
+                double[] stdDevs = recording.visionStdDevs[v];
+                var stdDevMatrix = VecBuilder.fill(stdDevs[0], stdDevs[1], stdDevs[2]);
+                wpilib.addVisionMeasurement(recording.visionPoses[v], recording.visionTimestamps[v], stdDevMatrix);
+                estimator.addVisionMeasurement(recording.visionPoses[v], recording.visionTimestamps[v], stdDevMatrix);
+                assertPoseEquals(wpilib.getEstimatedPosition(), estimator.getEstimatedPosition());
+
+                // Past poses match across the history, including between samples and past its ends
+                for (double sampleTime = timestamp - 1.6; sampleTime <= timestamp + 0.1; sampleTime += 0.0173) {
+                    assertPoseEquals(
+                            wpilib.sampleAt(sampleTime).orElseThrow(),
+                            estimator.sampleAt(sampleTime).orElseThrow());
+                }
+            }
+        }
+    }
+
+    @Test
+    void lateVisionMeasurementKeepsNewerMeasurements() {
+        // Two estimators see the same measurements, one in time order and one with the older measurement late
+        SwervePoseEstimator inOrder = makeEstimator();
+        SwervePoseEstimator late = makeEstimator();
+        for (int i = 0; i < 50; i++) {
+            for (SwerveModulePosition position : positions) {
+                position.distanceMeters += samplePeriod;
+            }
+            inOrder.updateWithTime((i + 1) * samplePeriod, 0.0, positions);
+            late.updateWithTime((i + 1) * samplePeriod, 0.0, positions);
+        }
+        Pose2d older = new Pose2d(0.4, 0.5, new Rotation2d(0.1));
+        Pose2d newer = new Pose2d(0.9, -0.3, new Rotation2d(-0.1));
+        inOrder.addVisionMeasurement(older, 0.4);
+        inOrder.addVisionMeasurement(newer, 0.8);
+        late.addVisionMeasurement(newer, 0.8);
+        late.addVisionMeasurement(older, 0.4);
+
+        // WPILib would drop the newer measurement here; this estimator re-applies it on top of the older one
+        assertPoseEquals(inOrder.getEstimatedPosition(), late.getEstimatedPosition());
+        assertPoseEquals(inOrder.sampleAt(0.6).orElseThrow(), late.sampleAt(0.6).orElseThrow());
+    }
+
+    @Test
+    void largerStateStdDevsPullHarderTowardVision() {
+        SwervePoseEstimator nominal = makeEstimator();
+        driveStraight(nominal, 0, 50);
+        for (SwerveModulePosition position : positions) {
+            position.distanceMeters = 0.0;
+        }
+        SwervePoseEstimator distrusted = makeEstimator();
+        distrusted.setStateStdDevs(0.5, 0.5, 0.5); // Scaled up from the default, as after a collision
+        driveStraight(distrusted, 0, 50);
+
+        Pose2d measurement = new Pose2d(1.0, 1.0, new Rotation2d());
+        nominal.addVisionMeasurement(measurement, 1.0);
+        distrusted.addVisionMeasurement(measurement, 1.0);
+        double nominalY = nominal.getEstimatedPosition().getY();
+        double distrustedY = distrusted.getEstimatedPosition().getY();
+        assertTrue(nominalY > 0.0);
+        assertTrue(distrustedY > nominalY);
+        assertTrue(distrustedY < 1.0);
+    }
+}
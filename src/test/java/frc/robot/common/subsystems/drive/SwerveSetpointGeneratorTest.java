@@ -0,0 +1,119 @@
+package frc.robot.common.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import org.junit.jupiter.api.Test;
+
+class SwerveSetpointGeneratorTest {
+    private static final Translation2d[] moduleTranslations = new Translation2d[] {
+        new Translation2d(0.3, 0.3),
+        new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3),
+        new Translation2d(-0.3, -0.3)
+    };
+    private static final double maxSpeed = 4.8;
+    private static final double maxAccel = 10.0;
+    private static final double maxSteerRate = 20.0;
+    private static final double dt = 0.02;
+    private static final double epsilon = 1e-9;
+
+    private final SwerveSetpointGenerator generator =
+            new SwerveSetpointGenerator(moduleTranslations, maxSpeed, maxAccel, maxSteerRate);
+
+    private static double moduleVx(ChassisSpeeds speeds, int module) {
+        return speeds.vxMetersPerSecond - speeds.omegaRadiansPerSecond * moduleTranslations[module].getY();
+    }
+
+    private static double moduleVy(ChassisSpeeds speeds, int module) {
+        return speeds.vyMetersPerSecond + speeds.omegaRadiansPerSecond * moduleTranslations[module].getX();
+    }
+
+    private static double moduleSpeed(ChassisSpeeds speeds, int module) {
+        return Math.hypot(moduleVx(speeds, module), moduleVy(speeds, module));
+    }
+
+    /** Returns the steering change between two module velocities, allowing the module to reverse. */
+    private static double steerChange(ChassisSpeeds from, ChassisSpeeds to, int module) {
+        double change = MathUtil.angleModulus(Math.atan2(moduleVy(to, module), moduleVx(to, module))
+                - Math.atan2(moduleVy(from, module), moduleVx(from, module)));
+        if (Math.abs(change) > Math.PI / 2.0) {
+            change -= Math.copySign(Math.PI, change);
+        }
+        return Math.abs(change);
+    }
+
+    private static ChassisSpeeds copy(ChassisSpeeds speeds) {
+        return new ChassisSpeeds(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+    }
+
+    @Test
+    void limitsModuleAcceleration() {
+        ChassisSpeeds desired = new ChassisSpeeds(4.0, 0.0, 2.0);
+        ChassisSpeeds previous = new ChassisSpeeds();
+        ChassisSpeeds output = new ChassisSpeeds();
+        for (int step = 0; step < 100; step++) {
+            generator.calculate(desired, dt, output);
+            for (int i = 0; i < moduleTranslations.length; i++) {
+                double speedChange = Math.abs(moduleSpeed(output, i) - moduleSpeed(previous, i));
+                assertTrue(speedChange <= maxAccel * dt + epsilon, "module " + i + " changed by " + speedChange);
+            }
+            previous = copy(output);
+        }
+
+        // Reaches the request once the ramp is done
+        assertEquals(4.0, output.vxMetersPerSecond, epsilon);
+        assertEquals(2.0, output.omegaRadiansPerSecond, epsilon);
+        assertEquals(1.0, generator.getLastFraction(), epsilon);
+    }
+
+    @Test
+    void limitsSteeringRateWhileMoving() {
+        ChassisSpeeds previous = new ChassisSpeeds(2.0, 0.0, 0.0);
+        generator.reset(previous);
+        ChassisSpeeds desired = new ChassisSpeeds(0.0, 2.0, 0.0);
+        ChassisSpeeds output = new ChassisSpeeds();
+        boolean limited = false;
+        for (int step = 0; step < 100; step++) {
+            generator.calculate(desired, dt, output);
+            limited |= generator.getLastFraction() < 1.0;
+            for (int i = 0; i < moduleTranslations.length; i++) {
+                double change = steerChange(previous, output, i);
+                assertTrue(change <= maxSteerRate * dt + epsilon, "module " + i + " steered by " + change);
+            }
+            previous = copy(output);
+        }
+        assertTrue(limited);
+        assertEquals(0.0, output.vxMetersPerSecond, 1e-6);
+        assertEquals(2.0, output.vyMetersPerSecond, 1e-6);
+    }
+
+    @Test
+    void stoppedModulesTurnWithoutSteeringLimit() {
+        // Any direction is reachable from rest, limited only by acceleration
+        ChassisSpeeds output = new ChassisSpeeds();
+        generator.calculate(new ChassisSpeeds(0.0, -0.1, 0.0), dt, output);
+        assertEquals(-0.1, output.vyMetersPerSecond, epsilon);
+        assertEquals(1.0, generator.getLastFraction(), epsilon);
+    }
+
+    @Test
+    void scalesRequestsAboveMaxSpeed() {
+        ChassisSpeeds output = new ChassisSpeeds();
+        for (int step = 0; step < 50; step++) {
+            generator.calculate(new ChassisSpeeds(8.0, 0.0, 0.0), dt, output);
+        }
+        assertEquals(maxSpeed, output.vxMetersPerSecond, epsilon);
+    }
+
+    @Test
+    void writesIntoDesiredSpeeds() {
+        ChassisSpeeds speeds = new ChassisSpeeds(4.0, 0.0, 0.0);
+        generator.calculate(speeds, dt, speeds);
+        assertTrue(speeds.vxMetersPerSecond <= maxAccel * dt + epsilon);
+        assertTrue(speeds.vxMetersPerSecond > 0.0);
+    }
+}
@@ -0,0 +1,86 @@
+package frc.robot.common.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SwerveSetpointKinematicsTest {
+    private static final Translation2d[] moduleTranslations = new Translation2d[] {
+        new Translation2d(0.3, 0.3),
+        new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3),
+        new Translation2d(-0.3, -0.3)
+    };
+    private static final double maxSpeed = 4.8;
+    private static final double dt = 0.02;
+    private static final double tolerance = 1e-6; // Rounding differs slightly between the two discretizations
+
+    private final SwerveSetpointKinematics setpointKinematics = new SwerveSetpointKinematics(moduleTranslations);
+    private final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(moduleTranslations);
+
+    /** Runs both paths on the same speeds and checks they produce the same module setpoints. */
+    private void assertMatchesWpilib(double vx, double vy, double omega) {
+        setpointKinematics.calculate(vx, vy, omega, dt, maxSpeed);
+        ChassisSpeeds discreteSpeeds = ChassisSpeeds.discretize(new ChassisSpeeds(vx, vy, omega), dt);
+        SwerveModuleState[] states = kinematics.toSwerveModuleStates(discreteSpeeds);
+        SwerveDriveKinematics.desaturateWheelSpeeds(states, maxSpeed);
+
+        ChassisSpeeds speeds = new ChassisSpeeds();
+        setpointKinematics.getDiscretizedSpeeds(speeds);
+        assertEquals(discreteSpeeds.vxMetersPerSecond, speeds.vxMetersPerSecond, tolerance);
+        assertEquals(discreteSpeeds.vyMetersPerSecond, speeds.vyMetersPerSecond, tolerance);
+        assertEquals(discreteSpeeds.omegaRadiansPerSecond, speeds.omegaRadiansPerSecond, tolerance);
+        for (int i = 0; i < moduleTranslations.length; i++) {
+            assertEquals(states[i].speedMetersPerSecond, setpointKinematics.getSpeedMetersPerSec(i), tolerance);
+            assertEquals(
+                    0.0,
+                    MathUtil.angleModulus(states[i].angle.getRadians() - setpointKinematics.getAngleRad(i)),
+                    tolerance);
+        }
+    }
+
+    @Test
+    void matchesWpilibOnRandomSpeeds() {
+        Random random = new Random(6328);
+        for (int i = 0; i < 1000; i++) {
+            // Include stops, so held headings are compared too
+            if (i % 10 == 0) {
+                assertMatchesWpilib(0.0, 0.0, 0.0);
+                continue;
+            }
+            assertMatchesWpilib(
+                    6.0 * (random.nextDouble() - 0.5),
+                    6.0 * (random.nextDouble() - 0.5),
+                    12.0 * (random.nextDouble() - 0.5));
+        }
+    }
+
+    @Test
+    void matchesWpilibWhenDesaturating() {
+        assertMatchesWpilib(4.8, 0.0, 8.0);
+        assertMatchesWpilib(-3.0, 4.0, -10.0);
+    }
+
+    @Test
+    void matchesWpilibForPureRotationAndTranslation() {
+        assertMatchesWpilib(0.0, 0.0, 2.0);
+        assertMatchesWpilib(1.0, -2.0, 0.0);
+        assertMatchesWpilib(0.0, 0.0, 0.0);
+    }
+
+    @Test
+    void stopKeepsPreviousHeadings() {
+        setpointKinematics.calculate(0.0, 1.0, 0.0, dt, maxSpeed);
+        setpointKinematics.calculate(0.0, 0.0, 0.0, dt, maxSpeed);
+        for (int i = 0; i < moduleTranslations.length; i++) {
+            assertEquals(0.0, setpointKinematics.getSpeedMetersPerSec(i));
+            assertEquals(Math.PI / 2, setpointKinematics.getAngleRad(i), tolerance);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package frc.robot.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class DoubleRingBufferTest {
+    private static double[] drain(DoubleRingBuffer buffer) {
+        double[] values = new double[buffer.capacity()];
+        int count = buffer.drainTo(values);
+        double[] drained = new double[count];
+        System.arraycopy(values, 0, drained, 0, count);
+        return drained;
+    }
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(8, new DoubleRingBuffer(5).capacity());
+        assertEquals(8, new DoubleRingBuffer(8).capacity());
+        assertEquals(2, new DoubleRingBuffer(1).capacity());
+    }
+
+    @Test
+    void wrapsAroundInOrder() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(round * 10 + i));
+            }
+            assertArrayEquals(new double[] {round * 10, round * 10 + 1, round * 10 + 2}, drain(buffer));
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void offerFailsWhenFull() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertTrue(buffer.isFull());
+        assertFalse(buffer.offer(4));
+        assertArrayEquals(new double[] {0, 1, 2, 3}, drain(buffer));
+    }
+
+    @Test
+    void overwriteOldestDiscardsOldestWhenFull() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(buffer.overwriteOldest(i));
+        }
+        assertTrue(buffer.overwriteOldest(4));
+        assertTrue(buffer.overwriteOldest(5));
+        assertArrayEquals(new double[] {2, 3, 4, 5}, drain(buffer));
+    }
+
+    @Test
+    void replaceNewestReplacesOrAdds() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+        buffer.replaceNewest(1);
+        assertEquals(1, buffer.size());
+        buffer.offer(2);
+        buffer.replaceNewest(3);
+        assertArrayEquals(new double[] {1, 3}, drain(buffer));
+
+        // Replaces after wrapping, and adds again once drained
+        for (int i = 0; i < 4; i++) {
+            buffer.offer(i);
+        }
+        buffer.replaceNewest(9);
+        assertArrayEquals(new double[] {0, 1, 2, 9}, drain(buffer));
+        buffer.replaceNewest(7);
+        assertArrayEquals(new double[] {7}, drain(buffer));
+    }
+
+    @Test
+    void limitHoldsBackLaterValues() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(8);
+        buffer.offer(1);
+        buffer.offer(2);
+        buffer.setLimit(buffer.getWriteCount());
+        buffer.offer(3);
+        assertEquals(2, buffer.size());
+        assertArrayEquals(new double[] {1, 2}, drain(buffer));
+        assertArrayEquals(new double[] {}, drain(buffer));
+
+        buffer.setLimit(buffer.getWriteCount());
+        assertArrayEquals(new double[] {3}, drain(buffer));
+    }
+
+    @Test
+    void setLimitUsesWriteCount() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(8);
+        buffer.offer(1);
+        long limit = buffer.getWriteCount();
+        buffer.offer(2);
+        buffer.setLimit(limit);
+        assertArrayEquals(new double[] {1}, drain(buffer));
+    }
+
+    @Test
+    void staleLimitBehindOverwrittenValuesReadsNothing() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(2);
+        buffer.offer(1);
+        buffer.setLimit(buffer.getWriteCount());
+        buffer.offer(2);
+        buffer.overwriteOldest(3);
+        buffer.overwriteOldest(4);
+        assertEquals(0, buffer.size());
+        assertArrayEquals(new double[] {}, drain(buffer));
+    }
+
+    @Test
+    void drainToRespectsMaxCount() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(i);
+        }
+        double[] values = new double[8];
+        assertEquals(2, buffer.drainTo(values, 2));
+        assertEquals(0, values[0]);
+        assertEquals(1, values[1]);
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    void clearDiscardsReadableValues() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+        buffer.offer(1);
+        buffer.offer(2);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        buffer.offer(3);
+        assertArrayEquals(new double[] {3}, drain(buffer));
+    }
+}
@@ -0,0 +1,66 @@
+package frc.robot.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void emptyWindowReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram(100, 10);
+        histogram.updateWindow();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMeanMs(), EPSILON);
+        assertEquals(0.0, histogram.getPercentileMs(0.99), EPSILON);
+        assertEquals(0.0, histogram.getMaxMs(), EPSILON);
+    }
+
+    @Test
+    void reportsMeanPercentileAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram(100, 10);
+        for (int i = 0; i < 99; i++) {
+            histogram.record(50); // First bucket
+        }
+        histogram.record(450); // Fifth bucket
+        histogram.updateWindow();
+
+        assertEquals(100, histogram.getCount());
+        assertEquals((99 * 50 + 450) / 1000.0 / 100, histogram.getMeanMs(), EPSILON);
+        assertEquals(0.1, histogram.getPercentileMs(0.5), EPSILON);
+        assertEquals(0.1, histogram.getPercentileMs(0.99), EPSILON);
+        assertEquals(0.5, histogram.getPercentileMs(1.0), EPSILON);
+        assertEquals(0.5, histogram.getMaxMs(), EPSILON);
+    }
+
+    @Test
+    void clampsOutOfRangeValuesToEdgeBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram(100, 4);
+        histogram.record(-5);
+        histogram.record(10_000);
+        histogram.updateWindow();
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0.1, histogram.getPercentileMs(0.5), EPSILON);
+        assertEquals(0.4, histogram.getMaxMs(), EPSILON);
+    }
+
+    @Test
+    void windowCoversOnlyValuesSinceLastUpdate() {
+        LatencyHistogram histogram = new LatencyHistogram(100, 10);
+        histogram.record(950);
+        histogram.updateWindow();
+        assertEquals(1.0, histogram.getMaxMs(), EPSILON);
+
+        histogram.record(150);
+        histogram.record(250);
+        histogram.updateWindow();
+        assertEquals(2, histogram.getCount());
+        assertEquals(0.2, histogram.getMeanMs(), EPSILON);
+        assertEquals(0.3, histogram.getMaxMs(), EPSILON);
+
+        histogram.updateWindow();
+        assertEquals(0, histogram.getCount());
+    }
+}
@@ -0,0 +1,66 @@
+package frc.robot.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class SeqLockDoubleArrayTest {
+    @Test
+    void readsPublishedValues() {
+        SeqLockDoubleArray array = new SeqLockDoubleArray(3);
+        double[] copy = new double[3];
+        assertTrue(array.read(copy));
+        assertArrayEquals(new double[] {0, 0, 0}, copy);
+
+        array.beginWrite();
+        array.set(0, 1);
+        array.set(1, 2);
+        array.set(2, 3);
+        array.endWrite();
+        assertTrue(array.read(copy));
+        assertArrayEquals(new double[] {1, 2, 3}, copy);
+    }
+
+    @Test
+    void readFailsDuringUpdate() {
+        SeqLockDoubleArray array = new SeqLockDoubleArray(2);
+        array.beginWrite();
+        assertFalse(array.read(new double[2]));
+        array.endWrite();
+        assertTrue(array.read(new double[2]));
+    }
+
+    @Test
+    void readerNeverSeesPartialUpdate() throws InterruptedException {
+        // Every update writes the same value to every slot, so a mixed copy is a torn read
+        SeqLockDoubleArray array = new SeqLockDoubleArray(8);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (long update = 1; running.get(); update++) {
+                array.beginWrite();
+                for (int i = 0; i < array.length(); i++) {
+                    array.set(i, update);
+                }
+                array.endWrite();
+            }
+        });
+        writer.start();
+        try {
+            double[] copy = new double[8];
+            for (int read = 0; read < 100_000; read++) {
+                if (array.read(copy)) {
+                    for (double value : copy) {
+                        assertEquals(copy[0], value);
+                    }
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}